@@ -28,6 +28,7 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 
 /**
@@ -195,6 +196,19 @@ public final class MiscUtils {
      * @return success
      */
     public static boolean copyDirectory(Path source, Path target) {
+        return copyDirectory(source, target, file -> true);
+    }
+
+    /**
+     * Copies a file tree, but only the files accepted by the specified filter.
+     * Directories are always copied.
+     * Only works if the target directory does not exist.
+     * @param source source directory
+     * @param target target directory
+     * @param filter filter which receives the source file path and returns true if the file should be copied
+     * @return success
+     */
+    public static boolean copyDirectory(Path source, Path target, Predicate<Path> filter) {
 
         if (Files.exists(target) || Files.isDirectory(target)) return false;
         if (!Files.isDirectory(source)) return false;
@@ -216,6 +230,7 @@ public final class MiscUtils {
 
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (!filter.test(file)) return FileVisitResult.CONTINUE;
                     Files.copy(file, target.resolve(source.relativize(file)));
                     return FileVisitResult.CONTINUE;
                 }
@@ -0,0 +1,176 @@
+package net.chaossquad.mclib.actionbar.manager;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An actionbar text that is shared by a group of players, like a game timer.<br/>
+ * The text is stored once for all members instead of once per player.
+ * Members without own texts that are in the same channels share a single rendered actionbar component.<br/>
+ * Channels are created with {@link ActionBarManager#createChannel(String, int)}.
+ * Players are removed from all channels when they go offline.
+ * All methods have to be called on the main thread.
+ */
+public final class ActionBarChannel {
+    @NotNull private final ActionBarManager manager;
+    @NotNull private final String id;
+    private final int priority;
+    @NotNull private final Set<UUID> members;
+    @Nullable private ActionBarText text;
+    private boolean removed;
+
+    /**
+     * Creates a new channel.
+     * @param manager manager
+     * @param id id
+     * @param priority priority of the channel text
+     */
+    ActionBarChannel(@NotNull ActionBarManager manager, @NotNull String id, int priority) {
+        this.manager = manager;
+        this.id = id;
+        this.priority = priority;
+        this.members = new LinkedHashSet<>();
+        this.text = null;
+        this.removed = false;
+    }
+
+    // ----- TEXT -----
+
+    /**
+     * Sets the text of the channel for all members.
+     * @param duration how long the text should be displayed
+     * @param component component
+     */
+    public void setText(int duration, @NotNull Component component) {
+        this.setText(duration, -1, component);
+    }
+
+    /**
+     * Sets the text of the channel with an explicit visible width for all members.<br/>
+     * Use this for texts whose width cannot be measured from the component, like translatable components (see {@link ActionBarText#measureWidth(Component)}).
+     * @param duration how long the text should be displayed
+     * @param width visible width in characters (-1 to measure it)
+     * @param component component
+     */
+    public void setText(int duration, int width, @NotNull Component component) {
+        if (this.removed) throw new IllegalStateException("Channel has been removed");
+        long removeAt = this.manager.getTick() + 1 + duration;
+        this.text = width < 0 ? new ActionBarText(component, removeAt, this.priority) : new ActionBarText(component, removeAt, this.priority, width);
+        this.manager.onChannelChanged(this);
+    }
+
+    /**
+     * Removes the text of the channel.
+     */
+    public void clearText() {
+        if (this.text == null) return;
+        this.text = null;
+        this.manager.onChannelChanged(this);
+    }
+
+    /**
+     * Returns the current text.
+     * @return text or null
+     */
+    public @Nullable ActionBarText getText() {
+        return this.text;
+    }
+
+    /**
+     * Removes the text if it has expired.
+     * @param tick current tick
+     * @return true if the text has expired
+     */
+    boolean expire(long tick) {
+        if (this.text == null || tick <= this.text.removeAt()) return false;
+        this.text = null;
+        return true;
+    }
+
+    // ----- MEMBERS -----
+
+    /**
+     * Adds the player to the channel.
+     * @param player player
+     */
+    public void addPlayer(@NotNull Player player) {
+        if (this.removed) throw new IllegalStateException("Channel has been removed");
+        if (!player.isOnline()) return;
+        if (!this.members.add(player.getUniqueId())) return;
+        this.manager.onChannelJoined(player.getUniqueId(), this);
+    }
+
+    /**
+     * Removes the player from the channel.
+     * @param player player
+     */
+    public void removePlayer(@NotNull Player player) {
+        this.removeMember(player.getUniqueId());
+    }
+
+    /**
+     * Removes the member from the channel.
+     * @param playerId player uuid
+     */
+    void removeMember(@NotNull UUID playerId) {
+        if (!this.members.remove(playerId)) return;
+        this.manager.onChannelLeft(playerId, this);
+    }
+
+    /**
+     * Returns the members of the channel.
+     * @return unmodifiable set of player uuids
+     */
+    public @NotNull Set<UUID> getMembers() {
+        return Collections.unmodifiableSet(this.members);
+    }
+
+    // ----- OTHER -----
+
+    /**
+     * Returns the id.
+     * @return id
+     */
+    public @NotNull String getId() {
+        return this.id;
+    }
+
+    /**
+     * Returns the priority of the channel text.
+     * @return priority
+     */
+    public int getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * Removes the channel and its text from all members.
+     */
+    public void remove() {
+        if (this.removed) return;
+        this.removed = true;
+
+        for (UUID playerId : Set.copyOf(this.members)) {
+            this.removeMember(playerId);
+        }
+
+        this.text = null;
+        this.manager.onChannelRemoved(this);
+    }
+
+    /**
+     * Returns true if the channel has been removed.
+     * @return removed
+     */
+    public boolean isRemoved() {
+        return this.removed;
+    }
+
+}
@@ -4,22 +4,69 @@ import net.kyori.adventure.text.Component;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Solves the problem of handling multiple actionbars at once.<br/>
  * With {@link Player#sendActionBar(Component)}, one actionbar would remove another actionbar.<br/>
- * With the ActionBarManager, it is possible to display multiple actionbars at once.
+ * With the ActionBarManager, it is possible to display multiple actionbars at once.<br/>
+ * Players are only handled by the task on ticks their actionbar changes, a text expires or the actionbar has to be refreshed.
+ * By default, actionbars are refreshed every run. With a longer refresh interval ({@link #FADE_REFRESH_INTERVAL}),
+ * the cost of the task scales with the activity, not with the amount of players.<br/>
+ * Actionbar texts can be added and removed from any thread.
+ * Changes made outside the main thread are put into a lock-free mailbox, which is drained by the task on the main thread before the actionbars are rendered.
+ * The mailbox is a single queue for all players instead of one mailbox per player:
+ * draining it only costs the amount of pending changes, and it keeps all changes in the order they have been made.
+ * Changes made on the main thread first drain the mailbox and are then applied directly, so they never overtake earlier changes from other threads.
+ * All other methods have to be called on the main thread.<br/>
+ * Texts are ordered by their priority (highest first) and then by the order they have been added.
+ * If a max width is set, texts which do not fit anymore are left out, starting with the lowest priority.
+ * The layout of a player is only computed again when the texts of the player change.<br/>
+ * Texts that are the same for a group of players can be shared using an {@link ActionBarChannel}.
  */
 public abstract class ActionBarManager {
+
+    /**
+     * The default amount of ticks after which an unchanged actionbar is sent again.<br/>
+     * The actionbar is sent every run by default, so actionbars sent by other plugins or the server are overwritten immediately.
+     */
+    public static final int DEFAULT_REFRESH_INTERVAL = 1;
+
+    /**
+     * A refresh interval which only sends an unchanged actionbar again shortly before it fades out on the client.<br/>
+     * Players with unchanged actionbars are then only handled every 40 ticks instead of every run,
+     * but actionbars sent by other plugins or the server can be visible for up to 2 seconds.
+     * Opt in with {@link #setRefreshInterval(int)}.
+     */
+    public static final int FADE_REFRESH_INTERVAL = 40;
+
     private final Plugin plugin;
-    private final Map<Player, Map<String, ActionBarText>> texts;
+    private final Map<UUID, PlayerActionBar> players;
+    private final List<UUID> changedPlayers;
+    private final Map<Long, List<UUID>> wakeups;
+    private final Queue<MailboxEntry> mailbox;
+    private final List<ActionBarChannel> channels;
+    private final Map<List<ActionBarChannel>, SharedLayout> sharedLayouts;
     private final Component splitter;
+    private final int splitterWidth;
     private long tick;
+    private int refreshInterval;
+    private int maxWidth;
 
     // CONSTRUCTOR
 
@@ -30,70 +77,155 @@ public abstract class ActionBarManager {
      */
     public ActionBarManager(@NotNull Plugin plugin, @NotNull Component splitter) {
         this.plugin = plugin;
-        this.texts = new HashMap<>();
+        this.players = new HashMap<>();
+        this.changedPlayers = new ArrayList<>();
+        this.wakeups = new HashMap<>();
+        this.mailbox = new ConcurrentLinkedQueue<>();
+        this.channels = new ArrayList<>();
+        this.sharedLayouts = new HashMap<>();
         this.splitter = splitter;
+        this.splitterWidth = ActionBarText.measureWidth(splitter);
         this.tick = 0;
+        this.refreshInterval = DEFAULT_REFRESH_INTERVAL;
+        this.maxWidth = 0;
     }
 
     // UTILITIES
 
     /**
      * Handles player.
-     * Used by run.
+     * Used by run.<br/>
+     * The layout and the actionbar component are only rebuilt when the texts of the player have changed.
+     * It is only sent when it has changed or when the last sent actionbar is about to fade out.
      * @param player player that should be handled
      */
     protected void handlePlayer(Player player) {
 
-        // Return if the player is not online or has an empty text map
+        // Return if the player is not online or has no actionbar
 
         if (!player.isOnline()) return;
 
-        Map<String, ActionBarText> playerTexts = this.texts.get(player);
-        if (playerTexts == null || playerTexts.isEmpty()) return;
+        PlayerActionBar actionBar = this.players.get(player.getUniqueId());
+        if (actionBar == null) return;
 
-        // Modified variable
+        // Remove expired texts
 
-        boolean hasRemovedContents = false;
+        if (actionBar.texts.values().removeIf(text -> text == null || this.tick > text.removeAt())) {
+            actionBar.version++;
+        }
 
-        // Create component list and add empty component to prevent the first component giving the format for all components
+        // Rebuild and send the actionbar when the texts have changed (sends an empty component to clear the actionbar when all texts have been removed)
 
-        Component component = Component.empty();
+        if (actionBar.version != actionBar.renderedVersion) {
 
-        // Manage components
+            if (actionBar.texts.isEmpty() && !actionBar.channels.isEmpty()) {
 
-        Iterator<String> iterator = List.copyOf(playerTexts.keySet()).iterator();
-        while (iterator.hasNext()) {
+                // Only channel texts: the layout is shared with all players in the same channels
 
-            // Get text id and text
+                SharedLayout shared = this.sharedLayouts.computeIfAbsent(List.copyOf(actionBar.channels), channels -> {
+                    List<ActionBarText> layout = this.buildLayout(this.collectTexts(Map.of(), channels));
+                    return new SharedLayout(layout, this.buildComponent(layout));
+                });
 
-            String id = iterator.next();
-            ActionBarText text = playerTexts.get(id);
+                actionBar.layout = shared.layout();
+                actionBar.rendered = shared.component();
 
-            // Add text when it is available and not null or remove it when these conditions are not met
+            } else {
+                actionBar.layout = this.buildLayout(this.collectTexts(actionBar.texts, actionBar.channels));
+                actionBar.rendered = this.buildComponent(actionBar.layout);
+            }
 
-            if (text != null && this.tick <= text.removeAt()) {
+            actionBar.renderedVersion = actionBar.version;
+            this.send(player, actionBar);
+            return;
+        }
 
-                // Add components
-                component = component.append(text.content());
+        // Send the unchanged actionbar again before it fades out
 
-                // Add splitter when it is required
-                if (iterator.hasNext()) {
-                    component = component.append(this.splitter);
-                }
+        if (!actionBar.layout.isEmpty() && this.tick - actionBar.lastSent >= this.refreshInterval) {
+            this.send(player, actionBar);
+        }
 
-            } else {
-                playerTexts.remove(id);
-                hasRemovedContents = true;
-            }
+    }
 
+    /**
+     * Collects the own texts and the channel texts of a player.
+     * @param texts own texts
+     * @param channels channels
+     * @return texts
+     */
+    private @NotNull List<ActionBarText> collectTexts(@NotNull Map<String, ActionBarText> texts, @NotNull List<ActionBarChannel> channels) {
+        List<ActionBarText> collected = new ArrayList<>(texts.values());
+
+        for (ActionBarChannel channel : channels) {
+            ActionBarText text = channel.getText();
+            if (text != null) collected.add(text);
         }
 
-        // Sends the action bar to the player when there are components available or when there were components removed (to clear the actionbar)
+        return collected;
+    }
+
+    /**
+     * Builds a layout.<br/>
+     * The layout contains the visible texts ordered by priority.
+     * @param texts texts (sorted in place)
+     * @return layout
+     */
+    private @NotNull List<ActionBarText> buildLayout(@NotNull List<ActionBarText> texts) {
+        if (texts.isEmpty()) return List.of();
+
+        // Stable sort, so that texts with the same priority stay in the order they have been added
+
+        texts.sort(Comparator.comparingInt(ActionBarText::priority).reversed());
 
-        if (!component.children().isEmpty() || hasRemovedContents) {
-            player.sendActionBar(component);
+        if (this.maxWidth <= 0) return texts;
+
+        // Leave out texts that do not fit, starting with the lowest priority
+
+        List<ActionBarText> layout = new ArrayList<>(texts.size());
+        int width = 0;
+
+        for (ActionBarText text : texts) {
+            int requiredWidth = text.width() + (layout.isEmpty() ? 0 : this.splitterWidth);
+            if (width + requiredWidth > this.maxWidth) continue;
+
+            layout.add(text);
+            width += requiredWidth;
         }
 
+        return layout;
+    }
+
+    /**
+     * Builds the actionbar component of the specified layout.
+     * @param layout layout
+     * @return component
+     */
+    private @NotNull Component buildComponent(@NotNull List<ActionBarText> layout) {
+
+        // Add empty component to prevent the first component giving the format for all components
+
+        Component component = Component.empty();
+
+        Iterator<ActionBarText> iterator = layout.iterator();
+        while (iterator.hasNext()) {
+
+            // Add components
+            component = component.append(iterator.next().content());
+
+            // Add splitter when it is required
+            if (iterator.hasNext()) {
+                component = component.append(this.splitter);
+            }
+
+        }
+
+        return component;
+    }
+
+    private void send(@NotNull Player player, @NotNull PlayerActionBar actionBar) {
+        player.sendActionBar(actionBar.rendered);
+        actionBar.lastSent = this.tick;
     }
 
     // TASKS
@@ -104,28 +236,46 @@ public abstract class ActionBarManager {
      */
     protected void mainTask() {
 
-        if (this.texts.isEmpty()) return;
+        // Changes from the mailbox
 
-        for (Player player : List.copyOf(this.texts.keySet())) {
+        this.drainMailbox();
 
-            // Remove when player is not online
+        // Expired channel texts
 
-            if (!player.isOnline()) {
-                this.texts.remove(player);
-                continue;
-            }
+        for (ActionBarChannel channel : this.channels) {
+            if (channel.expire(this.tick)) this.onChannelChanged(channel);
+        }
+
+        this.sharedLayouts.clear();
+
+        // Players whose texts have changed
 
-            // Remove when empty
+        if (!this.changedPlayers.isEmpty()) {
 
-            Map<String, ActionBarText> playerTexts = this.texts.get(player);
-            if (playerTexts == null || playerTexts.isEmpty()) {
-                this.texts.remove(player);
-                continue;
+            for (UUID playerId : this.changedPlayers) {
+                PlayerActionBar actionBar = this.players.get(playerId);
+                if (actionBar == null) continue;
+
+                actionBar.changed = false;
+                this.updatePlayer(playerId, actionBar);
             }
 
-            // Handle player
+            this.changedPlayers.clear();
+        }
+
+        // Players with expiring texts or actionbars that need to be refreshed
+
+        List<UUID> wakeups = this.wakeups.remove(this.tick);
+        if (wakeups != null) {
+
+            for (UUID playerId : wakeups) {
+                PlayerActionBar actionBar = this.players.get(playerId);
 
-            this.handlePlayer(player);
+                // Stale entry of a player that has been rescheduled or removed
+                if (actionBar == null || actionBar.wakeup != this.tick) continue;
+
+                this.updatePlayer(playerId, actionBar);
+            }
 
         }
 
@@ -133,19 +283,215 @@ public abstract class ActionBarManager {
             this.tick++;
         } else {
             this.tick = 0;
-            this.texts.clear();
+            this.players.clear();
+            this.changedPlayers.clear();
+            this.wakeups.clear();
+            for (ActionBarChannel channel : List.copyOf(this.channels)) {
+                channel.remove();
+            }
+        }
+
+    }
+
+    /**
+     * Handles the player and schedules the next tick the player needs to be handled.
+     * @param playerId player
+     * @param actionBar actionbar of the player
+     */
+    private void updatePlayer(@NotNull UUID playerId, @NotNull PlayerActionBar actionBar) {
+
+        // Remove when player is not online
+
+        Player player = this.plugin.getServer().getPlayer(playerId);
+        if (player == null || !player.isOnline()) {
+            this.players.remove(playerId);
+            for (ActionBarChannel channel : List.copyOf(actionBar.channels)) {
+                channel.removeMember(playerId);
+            }
+            return;
+        }
+
+        // Handle player
+
+        this.handlePlayer(player);
+
+        // Remove when empty and the actionbar has been cleared
+
+        if (actionBar.texts.isEmpty() && actionBar.channels.isEmpty() && actionBar.version == actionBar.renderedVersion) {
+            this.players.remove(playerId);
+            return;
+        }
+
+        // Schedule the next expiration or refresh
+
+        // Players with an empty layout (only channels without text) are woken up by channel changes
+
+        long wakeup = actionBar.layout.isEmpty() ? Long.MAX_VALUE : actionBar.lastSent + this.refreshInterval;
+        for (ActionBarText text : actionBar.texts.values()) {
+            wakeup = Math.min(wakeup, text.removeAt() + 1);
+        }
+        if (wakeup == Long.MAX_VALUE) return;
+        wakeup = Math.max(wakeup, this.tick + 1);
+
+        if (actionBar.wakeup != wakeup) {
+            actionBar.wakeup = wakeup;
+            this.wakeups.computeIfAbsent(wakeup, k -> new ArrayList<>()).add(playerId);
         }
 
     }
 
     /**
-     * Returns the player components map.
+     * Marks the actionbar of the player as changed, so that it is handled in the next run.
+     * @param playerId player
+     * @param actionBar actionbar of the player
+     */
+    private void markChanged(@NotNull UUID playerId, @NotNull PlayerActionBar actionBar) {
+        actionBar.version++;
+        if (actionBar.changed) return;
+
+        actionBar.changed = true;
+        this.changedPlayers.add(playerId);
+    }
+
+    // CHANNELS
+
+    /**
+     * Creates a channel for an actionbar text that is shared by multiple players.
+     * @param id channel id (used for identification only)
+     * @param priority priority of the channel text
+     * @return channel
+     */
+    public @NotNull ActionBarChannel createChannel(@NotNull String id, int priority) {
+        ActionBarChannel channel = new ActionBarChannel(this, id, priority);
+        this.channels.add(channel);
+        return channel;
+    }
+
+    /**
+     * Returns all channels.
+     * @return list of channels
+     */
+    public @NotNull List<ActionBarChannel> getChannels() {
+        return List.copyOf(this.channels);
+    }
+
+    /**
+     * Marks all members of the channel as changed.
+     * @param channel channel
+     */
+    void onChannelChanged(@NotNull ActionBarChannel channel) {
+
+        for (UUID playerId : channel.getMembers()) {
+            PlayerActionBar actionBar = this.players.get(playerId);
+            if (actionBar == null) continue;
+            this.markChanged(playerId, actionBar);
+        }
+
+    }
+
+    /**
+     * Adds the channel to the actionbar of the player.
+     * @param playerId player
+     * @param channel channel
+     */
+    void onChannelJoined(@NotNull UUID playerId, @NotNull ActionBarChannel channel) {
+        PlayerActionBar actionBar = this.players.computeIfAbsent(playerId, k -> new PlayerActionBar());
+        actionBar.channels.add(channel);
+        this.markChanged(playerId, actionBar);
+    }
+
+    /**
+     * Removes the channel from the actionbar of the player.
+     * @param playerId player
+     * @param channel channel
+     */
+    void onChannelLeft(@NotNull UUID playerId, @NotNull ActionBarChannel channel) {
+        PlayerActionBar actionBar = this.players.get(playerId);
+        if (actionBar == null) return;
+
+        if (actionBar.channels.remove(channel)) {
+            this.markChanged(playerId, actionBar);
+        }
+
+    }
+
+    /**
+     * Removes the channel from the manager.
+     * @param channel channel
+     */
+    void onChannelRemoved(@NotNull ActionBarChannel channel) {
+        this.channels.remove(channel);
+    }
+
+    /**
+     * Applies all changes from the mailbox in the order they have been made.
+     */
+    private void drainMailbox() {
+        MailboxEntry entry;
+        while ((entry = this.mailbox.poll()) != null) {
+            this.apply(entry);
+        }
+    }
+
+    /**
+     * Applies a change from the mailbox.
+     * @param entry mailbox entry
+     */
+    private void apply(@NotNull MailboxEntry entry) {
+
+        if (entry.id() == null) {
+            this.clear(entry.playerId());
+        } else if (entry.component() == null) {
+            this.remove(entry.playerId(), entry.id());
+        } else {
+            this.put(entry.playerId(), entry.id(), entry.duration(), entry.priority(), entry.width(), entry.component());
+        }
+
+    }
+
+    /**
+     * Returns true if the current thread is the main thread.
+     * @return main thread
+     */
+    private boolean isMainThread() {
+        return this.plugin.getServer().isPrimaryThread();
+    }
+
+    /**
+     * Returns the player components map.<br/>
+     * The returned map is a live view which can be modified. Changes mark the actionbar of the player as changed.
+     * Has to be used on the main thread.
      * @param player player
      * @return text map
      */
     protected Map<String, ActionBarText> getPlayerTextMap(Player player) {
         if (player == null) return null;
-        return this.texts.computeIfAbsent(player, k -> new HashMap<>());
+        return new PlayerTextMap(player.getUniqueId());
+    }
+
+    private void put(@NotNull UUID playerId, @NotNull String id, int duration, int priority, int width, @NotNull Component component) {
+        PlayerActionBar actionBar = this.players.computeIfAbsent(playerId, k -> new PlayerActionBar());
+        long removeAt = this.tick + 1 + duration;
+        actionBar.texts.put(id, width < 0 ? new ActionBarText(component, removeAt, priority) : new ActionBarText(component, removeAt, priority, width));
+        this.markChanged(playerId, actionBar);
+    }
+
+    private void remove(@NotNull UUID playerId, @NotNull String id) {
+        PlayerActionBar actionBar = this.players.get(playerId);
+        if (actionBar == null) return;
+
+        if (actionBar.texts.remove(id) != null) {
+            this.markChanged(playerId, actionBar);
+        }
+
+    }
+
+    private void clear(@NotNull UUID playerId) {
+        PlayerActionBar actionBar = this.players.get(playerId);
+        if (actionBar == null || actionBar.texts.isEmpty()) return;
+
+        actionBar.texts.clear();
+        this.markChanged(playerId, actionBar);
     }
 
     // MANAGE COMPONENTS
@@ -156,7 +502,15 @@ public abstract class ActionBarManager {
      */
     @SuppressWarnings("unused")
     public List<Player> getRegisteredPlayers() {
-        return List.copyOf(this.texts.keySet());
+        List<Player> players = new ArrayList<>();
+
+        for (UUID playerId : this.players.keySet()) {
+            Player player = this.plugin.getServer().getPlayer(playerId);
+            if (player == null) continue;
+            players.add(player);
+        }
+
+        return List.copyOf(players);
     }
 
     /**
@@ -170,7 +524,8 @@ public abstract class ActionBarManager {
     }
 
     /**
-     * Adds an actionbar text for the specified player
+     * Adds an actionbar text for the specified player.<br/>
+     * Can be called from any thread.
      * @param player player
      * @param id actionbar id
      * @param component chat component to send
@@ -178,28 +533,161 @@ public abstract class ActionBarManager {
      */
     @SuppressWarnings("unused")
     public void sendActionBarMessage(Player player, String id, int duration, Component component) {
-        if (player == null || !player.isOnline() || id == null || component == null) return;
-        this.getPlayerTextMap(player).put(id, new ActionBarText(component, this.tick + 1 + duration));
+        this.sendActionBarMessage(player, id, duration, 0, component);
+    }
+
+    /**
+     * Adds an actionbar text with the specified priority for the specified player.<br/>
+     * Can be called from any thread.
+     * @param player player
+     * @param id actionbar id
+     * @param duration how long the action bar should be displayed
+     * @param priority priority (texts with a higher priority are displayed first)
+     * @param component chat component to send
+     */
+    public void sendActionBarMessage(Player player, String id, int duration, int priority, Component component) {
+        this.sendActionBarMessage(player, id, duration, priority, -1, component);
     }
 
     /**
-     * Removes an actionbar text specified by id
+     * Adds an actionbar text with the specified priority and visible width for the specified player.<br/>
+     * Use this for texts whose width cannot be measured from the component, like translatable components (see {@link ActionBarText#measureWidth(Component)}).<br/>
+     * Can be called from any thread.
+     * @param player player
+     * @param id actionbar id
+     * @param duration how long the action bar should be displayed
+     * @param priority priority (texts with a higher priority are displayed first)
+     * @param width visible width in characters (-1 to measure it)
+     * @param component chat component to send
+     */
+    public void sendActionBarMessage(Player player, String id, int duration, int priority, int width, Component component) {
+        if (player == null || id == null || component == null) return;
+
+        if (!this.isMainThread()) {
+            this.sendActionBarMessage(player.getUniqueId(), id, duration, priority, width, component);
+            return;
+        }
+
+        if (!player.isOnline()) return;
+        this.drainMailbox();
+        this.put(player.getUniqueId(), id, duration, priority, width, component);
+    }
+
+    /**
+     * Adds an actionbar text for the specified player.<br/>
+     * Thread-safe. Outside the main thread, the text is added by the next run of the task and the duration starts from there.
+     * @param playerId player uuid
+     * @param id actionbar id
+     * @param duration how long the action bar should be displayed
+     * @param component chat component to send
+     */
+    public void sendActionBarMessage(@NotNull UUID playerId, @NotNull String id, int duration, @NotNull Component component) {
+        this.sendActionBarMessage(playerId, id, duration, 0, component);
+    }
+
+    /**
+     * Adds an actionbar text with the specified priority for the specified player.<br/>
+     * Thread-safe. Outside the main thread, the text is added by the next run of the task and the duration starts from there.
+     * @param playerId player uuid
+     * @param id actionbar id
+     * @param duration how long the action bar should be displayed
+     * @param priority priority (texts with a higher priority are displayed first)
+     * @param component chat component to send
+     */
+    public void sendActionBarMessage(@NotNull UUID playerId, @NotNull String id, int duration, int priority, @NotNull Component component) {
+        this.sendActionBarMessage(playerId, id, duration, priority, -1, component);
+    }
+
+    /**
+     * Adds an actionbar text with the specified priority and visible width for the specified player.<br/>
+     * Use this for texts whose width cannot be measured from the component, like translatable components (see {@link ActionBarText#measureWidth(Component)}).<br/>
+     * Thread-safe. Outside the main thread, the text is added by the next run of the task and the duration starts from there.
+     * @param playerId player uuid
+     * @param id actionbar id
+     * @param duration how long the action bar should be displayed
+     * @param priority priority (texts with a higher priority are displayed first)
+     * @param width visible width in characters (-1 to measure it)
+     * @param component chat component to send
+     */
+    public void sendActionBarMessage(@NotNull UUID playerId, @NotNull String id, int duration, int priority, int width, @NotNull Component component) {
+
+        if (!this.isMainThread()) {
+            this.mailbox.offer(new MailboxEntry(playerId, id, duration, priority, width, component));
+            return;
+        }
+
+        this.drainMailbox();
+        this.put(playerId, id, duration, priority, width, component);
+    }
+
+    /**
+     * Removes an actionbar text specified by id.<br/>
+     * Can be called from any thread.
      * @param player player
      * @param id actionbar text id
      */
     @SuppressWarnings("unused")
     public void removeActionBarMessage(Player player, String id) {
         if (player == null || id == null) return;
-        this.getPlayerTextMap(player).remove(id);
+
+        if (!this.isMainThread()) {
+            this.removeActionBarMessage(player.getUniqueId(), id);
+            return;
+        }
+
+        this.drainMailbox();
+        this.remove(player.getUniqueId(), id);
     }
 
     /**
-     * Clears all actionbar texts of the specified player.
+     * Removes an actionbar text specified by id.<br/>
+     * Thread-safe. Outside the main thread, the text is removed by the next run of the task.
+     * @param playerId player uuid
+     * @param id actionbar text id
+     */
+    public void removeActionBarMessage(@NotNull UUID playerId, @NotNull String id) {
+
+        if (!this.isMainThread()) {
+            this.mailbox.offer(new MailboxEntry(playerId, id, 0, 0, -1, null));
+            return;
+        }
+
+        this.drainMailbox();
+        this.remove(playerId, id);
+    }
+
+    /**
+     * Clears all actionbar texts of the specified player.<br/>
+     * Can be called from any thread.
      * @param player player
      */
     @SuppressWarnings("unused")
     public void clearActionBarMessages(Player player) {
-        this.texts.remove(player);
+        if (player == null) return;
+
+        if (!this.isMainThread()) {
+            this.clearActionBarMessages(player.getUniqueId());
+            return;
+        }
+
+        this.drainMailbox();
+        this.clear(player.getUniqueId());
+    }
+
+    /**
+     * Clears all actionbar texts of the specified player.<br/>
+     * Thread-safe. Outside the main thread, the texts are cleared by the next run of the task.
+     * @param playerId player uuid
+     */
+    public void clearActionBarMessages(@NotNull UUID playerId) {
+
+        if (!this.isMainThread()) {
+            this.mailbox.offer(new MailboxEntry(playerId, null, 0, 0, -1, null));
+            return;
+        }
+
+        this.drainMailbox();
+        this.clear(playerId);
     }
 
     // GETTER
@@ -221,4 +709,195 @@ public abstract class ActionBarManager {
         return this.tick;
     }
 
+    /**
+     * Returns the amount of ticks after which an unchanged actionbar is sent again.
+     * @return refresh interval
+     */
+    public int getRefreshInterval() {
+        return this.refreshInterval;
+    }
+
+    /**
+     * Sets the amount of ticks after which an unchanged actionbar is sent again.<br/>
+     * Has to be lower than the time the client displays an actionbar.
+     * Longer intervals reduce the work of the task, but actionbars sent by others stay visible until the next refresh.
+     * Defaults to {@link #DEFAULT_REFRESH_INTERVAL}.
+     * @param refreshInterval refresh interval
+     */
+    public void setRefreshInterval(int refreshInterval) {
+        if (refreshInterval <= 0) throw new IllegalArgumentException("Refresh interval must be positive");
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Returns the max visible width of the actionbar.
+     * @return max width in characters (0 for unlimited)
+     */
+    public int getMaxWidth() {
+        return this.maxWidth;
+    }
+
+    /**
+     * Sets the max visible width of the actionbar.<br/>
+     * Texts that do not fit are left out, starting with the lowest priority.
+     * Applies to actionbars that change after this call.
+     * @param maxWidth max width in characters (0 for unlimited)
+     */
+    public void setMaxWidth(int maxWidth) {
+        if (maxWidth < 0) throw new IllegalArgumentException("Max width must not be negative");
+        this.maxWidth = maxWidth;
+    }
+
+    // PLAYER ACTIONBAR
+
+    /**
+     * A layout shared by all players with the same channels and without own texts.
+     * @param layout layout
+     * @param component rendered component
+     */
+    private record SharedLayout(@NotNull List<ActionBarText> layout, @NotNull Component component) {}
+
+    /**
+     * A change made through the mailbox.
+     * @param playerId player
+     * @param id text id (null to clear all texts)
+     * @param duration duration
+     * @param priority priority
+     * @param width visible width (-1 to measure it)
+     * @param component component (null to remove the text)
+     */
+    private record MailboxEntry(@NotNull UUID playerId, @Nullable String id, int duration, int priority, int width, @Nullable Component component) {}
+
+    /**
+     * The texts and render cache of a player.
+     */
+    private static final class PlayerActionBar {
+        private final Map<String, ActionBarText> texts;
+        private final List<ActionBarChannel> channels;
+        private int version;
+        private int renderedVersion;
+        private List<ActionBarText> layout;
+        private Component rendered;
+        private long lastSent;
+        private long wakeup;
+        private boolean changed;
+
+        private PlayerActionBar() {
+            this.texts = new LinkedHashMap<>();
+            this.channels = new ArrayList<>();
+            this.version = 0;
+            this.renderedVersion = 0;
+            this.layout = List.of();
+            this.rendered = Component.empty();
+            this.lastSent = 0;
+            this.wakeup = -1;
+            this.changed = false;
+        }
+
+    }
+
+    /**
+     * Live view of the texts of a player which marks the actionbar as changed when it is modified.
+     */
+    private final class PlayerTextMap extends AbstractMap<String, ActionBarText> {
+        @NotNull private final UUID playerId;
+
+        private PlayerTextMap(@NotNull UUID playerId) {
+            this.playerId = playerId;
+        }
+
+        /**
+         * Returns the texts of the player.
+         * @return texts (empty if the player has no actionbar)
+         */
+        private @NotNull Map<String, ActionBarText> texts() {
+            PlayerActionBar actionBar = players.get(this.playerId);
+            return actionBar != null ? actionBar.texts : Map.of();
+        }
+
+        @Override
+        public int size() {
+            return this.texts().size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return this.texts().containsKey(key);
+        }
+
+        @Override
+        public ActionBarText get(Object key) {
+            return this.texts().get(key);
+        }
+
+        @Override
+        public ActionBarText put(@NotNull String key, @NotNull ActionBarText value) {
+            drainMailbox();
+            PlayerActionBar actionBar = players.computeIfAbsent(this.playerId, k -> new PlayerActionBar());
+            ActionBarText previous = actionBar.texts.put(key, value);
+            markChanged(this.playerId, actionBar);
+            return previous;
+        }
+
+        @Override
+        public ActionBarText remove(Object key) {
+            drainMailbox();
+            PlayerActionBar actionBar = players.get(this.playerId);
+            if (actionBar == null) return null;
+
+            ActionBarText removed = actionBar.texts.remove(key);
+            if (removed != null) markChanged(this.playerId, actionBar);
+            return removed;
+        }
+
+        @Override
+        public void clear() {
+            drainMailbox();
+            ActionBarManager.this.clear(this.playerId);
+        }
+
+        @Override
+        public @NotNull Set<Entry<String, ActionBarText>> entrySet() {
+
+            return new AbstractSet<>() {
+
+                @Override
+                public @NotNull Iterator<Entry<String, ActionBarText>> iterator() {
+                    PlayerActionBar actionBar = players.get(playerId);
+                    if (actionBar == null) return Collections.emptyIterator();
+
+                    Iterator<Entry<String, ActionBarText>> iterator = actionBar.texts.entrySet().iterator();
+
+                    return new Iterator<>() {
+
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, ActionBarText> next() {
+                            Entry<String, ActionBarText> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(entry);
+                        }
+
+                        @Override
+                        public void remove() {
+                            iterator.remove();
+                            markChanged(playerId, actionBar);
+                        }
+
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return PlayerTextMap.this.size();
+                }
+
+            };
+        }
+
+    }
+
 }
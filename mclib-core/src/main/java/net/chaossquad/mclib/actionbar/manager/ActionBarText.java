@@ -1,10 +1,47 @@
 package net.chaossquad.mclib.actionbar.manager;
 
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 
 /**
  * Stores information about an actionbar text for the {@link ActionBarManager}.
  * @param content content
  * @param removeAt remote at tick
+ * @param priority priority (texts with a higher priority are displayed first and are kept when the max width is exceeded)
+ * @param width visible width (amount of plain text characters, see {@link #measureWidth(Component)})
  */
-public record ActionBarText(Component content, long removeAt) {}
+public record ActionBarText(Component content, long removeAt, int priority, int width) {
+
+    /**
+     * Creates an ActionBarText with the specified priority and measures its width.
+     * @param content content
+     * @param removeAt remove at tick
+     * @param priority priority
+     */
+    public ActionBarText(Component content, long removeAt, int priority) {
+        this(content, removeAt, priority, measureWidth(content));
+    }
+
+    /**
+     * Creates an ActionBarText with the default priority 0.
+     * @param content content
+     * @param removeAt remove at tick
+     */
+    public ActionBarText(Component content, long removeAt) {
+        this(content, removeAt, 0);
+    }
+
+    /**
+     * Returns the visible width of the specified component.<br/>
+     * The width is the length of the plain text serialization.
+     * This is only an estimate for components whose text is resolved by the client:
+     * translatable components are counted by the length of their key, and keybind components by the length of the keybind.
+     * Pass an explicit width for texts containing such components.
+     * @param component component
+     * @return amount of plain text characters
+     */
+    public static int measureWidth(Component component) {
+        return PlainTextComponentSerializer.plainText().serialize(component).length();
+    }
+
+}
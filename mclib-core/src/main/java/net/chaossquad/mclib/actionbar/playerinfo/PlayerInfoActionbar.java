@@ -10,26 +10,48 @@ import net.kyori.adventure.text.format.TextColor;
 import org.bukkit.FluidCollisionMode;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.attribute.AttributeInstance;
-import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
-import org.bukkit.scoreboard.Scoreboard;
 import org.bukkit.scoreboard.Team;
+import org.bukkit.util.BoundingBox;
 import org.bukkit.util.RayTraceResult;
+import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 
 /**
- * An actionbar which shows the current player name and health in the actionbar.
+ * An actionbar which shows the current player name and health in the actionbar.<br/>
+ * To find the player that is looked at, the players of each world are put into a spatial grid once per run.
+ * Only players in the cells around the viewer that are close to the view ray are checked,
+ * so there is no full entity ray trace per player.
+ * Other entities than players do not block the view.<br/>
+ * In staggered mode ({@link #setPlayersPerRun(int)}), each run only handles the next part of the players, so the cost per run is bounded.
+ * With result caching ({@link #setRefreshInterval(int)}), the actionbar is only built and sent when the target, its health, its name or its team have changed,
+ * or when the refresh interval has passed. Changes of the prefix, suffix or color of the same team are shown with the next refresh.
  */
 public final class PlayerInfoActionbar implements Runnable {
+    private static final double RAY_SIZE = 0.5;
+    private static final int MIN_CELL_SIZE = 8;
     @NotNull private final PlayerProvider playerProvider;
     @NotNull private final ActionBarProvider actionBar;
     private final int range;
     @Nullable private final ScoreboardConfig scoreboardConfig;
+    @NotNull private final Map<UUID, ViewerState> viewers;
+    private int playersPerRun;
+    private int refreshInterval;
+    private int cursor;
+    private long runs;
 
     /**
      * Creates a PlayerInfoActionbar.
@@ -43,6 +65,11 @@ public final class PlayerInfoActionbar implements Runnable {
         this.actionBar = actionBar;
         this.range = range;
         this.scoreboardConfig = scoreboardConfig;
+        this.viewers = new HashMap<>();
+        this.playersPerRun = 0;
+        this.refreshInterval = 0;
+        this.cursor = 0;
+        this.runs = 0;
     }
 
     /**
@@ -62,57 +89,206 @@ public final class PlayerInfoActionbar implements Runnable {
      */
     @Override
     public void run() {
+        this.runs++;
 
-        for (Player player : this.playerProvider.getPlayers()) {
-
-            Location eyeLocation = player.getEyeLocation().clone();
-            RayTraceResult result = player.getLocation().getWorld().rayTrace(
-                    eyeLocation,
-                    eyeLocation.getDirection(),
-                    this.range,
-                    FluidCollisionMode.NEVER,
-                    true,
-                    0.5,
-                    entity -> {
-                        if (player == entity) return false;
-                        if (!player.canSee(entity)) return false;
-                        return !(entity instanceof Player target) || target.getGameMode() != GameMode.SPECTATOR;
-                    }
-            );
+        List<Player> players = this.playerProvider.getPlayers();
+        if (players.isEmpty()) {
+            this.viewers.clear();
+            return;
+        }
+
+        // Select the players of this run
+
+        int count = players.size();
+        if (this.playersPerRun > 0 && this.playersPerRun < count) {
+            count = this.playersPerRun;
+        }
+
+        if (this.cursor >= players.size()) {
+            this.cursor = 0;
+        }
+
+        // Remove cached results of players that are no longer provided once per rotation
+
+        if (this.cursor == 0 && !this.viewers.isEmpty()) {
+            Set<UUID> playerIds = new HashSet<>();
+            for (Player player : players) {
+                playerIds.add(player.getUniqueId());
+            }
+            this.viewers.keySet().retainAll(playerIds);
+        }
+
+        Map<World, Map<Long, List<Player>>> grids = new HashMap<>();
+
+        for (int i = 0; i < count; i++) {
+            Player player = players.get((this.cursor + i) % players.size());
+
+            Map<Long, List<Player>> grid = grids.computeIfAbsent(player.getWorld(), this::buildGrid);
+
+            Player target = this.findTarget(player, grid);
+            if (target == null) {
+                this.viewers.remove(player.getUniqueId());
+                continue;
+            }
+
+            this.handleTarget(player, target);
+        }
+
+        this.cursor = (this.cursor + count) % players.size();
+    }
+
+    /**
+     * Sends the actionbar for the target to the player if the cached result is outdated.
+     * @param player player
+     * @param target target
+     */
+    private void handleTarget(@NotNull Player player, @NotNull Player target) {
+
+        AttributeInstance maxHealthAttribute = target.getAttribute(Attribute.MAX_HEALTH);
+        int maxHealth = maxHealthAttribute == null ? -1 : (int) maxHealthAttribute.getValue();
+        int health = (int) target.getHealth();
+        Component targetName = target.displayName();
+        Team team = this.scoreboardConfig != null ? player.getScoreboard().getEntryTeam(target.getName()) : null;
+        String teamName = team != null ? team.getName() : null; // getEntryTeam returns a new wrapper on every call, so teams are compared by name
+
+        // Skip when the inputs have not changed and the refresh interval has not passed
+        // Changes of the prefix, suffix or color of the team are shown with the next refresh
+
+        if (this.refreshInterval > 0) {
+            ViewerState state = this.viewers.get(player.getUniqueId());
+
+            if (state != null &&
+                    state.target().equals(target.getUniqueId()) &&
+                    state.health() == health &&
+                    state.maxHealth() == maxHealth &&
+                    Objects.equals(state.teamName(), teamName) &&
+                    state.targetName().equals(targetName) &&
+                    this.runs - state.lastSent() < this.refreshInterval) {
+                return;
+            }
+
+            this.viewers.put(player.getUniqueId(), new ViewerState(target.getUniqueId(), health, maxHealth, targetName, teamName, this.runs));
+        }
+
+        String maxHealthString = maxHealth < 0 ? "E" : String.valueOf(maxHealth);
+        Component displayName = this.buildDisplayName(targetName, team);
+
+        this.actionBar.sendActionBar(
+                player,
+                Component.text("Looking at:").color(NamedTextColor.GRAY)
+                        .appendSpace()
+                        .append(displayName)
+                        .appendSpace()
+                        .append(Component.text("(❤" + health + "/" + maxHealthString + ")"))
+        );
+
+    }
+
+    /**
+     * Builds the spatial grid of all players in the specified world which can be targeted.
+     * @param world world
+     * @return grid cells by cell key
+     */
+    private @NotNull Map<Long, List<Player>> buildGrid(@NotNull World world) {
+        Map<Long, List<Player>> grid = new HashMap<>();
+
+        for (Player player : world.getPlayers()) {
+            if (player.getGameMode() == GameMode.SPECTATOR) continue;
+
+            Location location = player.getLocation();
+            grid.computeIfAbsent(this.getCellKey(location.getX(), location.getZ()), k -> new ArrayList<>()).add(player);
+        }
+
+        return grid;
+    }
+
+    /**
+     * Finds the player the specified player is looking at.<br/>
+     * Only players in the grid cells around the player that are visible and inside the view cylinder of the ray are checked against their bounding box.
+     * After that, a single block ray trace checks if the nearest hit is hidden behind a block.
+     * @param player player
+     * @param grid grid of the player's world
+     * @return target or null
+     */
+    private @Nullable Player findTarget(@NotNull Player player, @NotNull Map<Long, List<Player>> grid) {
+        Location eyeLocation = player.getEyeLocation();
+        Vector start = eyeLocation.toVector();
+        Vector direction = eyeLocation.getDirection();
+
+        int minCellX = Math.floorDiv((int) Math.floor(start.getX() - this.range), this.getCellSize());
+        int maxCellX = Math.floorDiv((int) Math.floor(start.getX() + this.range), this.getCellSize());
+        int minCellZ = Math.floorDiv((int) Math.floor(start.getZ() - this.range), this.getCellSize());
+        int maxCellZ = Math.floorDiv((int) Math.floor(start.getZ() + this.range), this.getCellSize());
+
+        Player target = null;
+        double targetDistance = Double.MAX_VALUE;
+
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+
+                List<Player> cell = grid.get(cellKey(cellX, cellZ));
+                if (cell == null) continue;
 
-            if (result == null) continue;
+                for (Player candidate : cell) {
+                    if (candidate == player) continue;
 
-            Entity entity = result.getHitEntity();
-            if (!(entity instanceof Player target)) continue;
+                    // View cylinder: the candidate has to be in front of the player and close to the ray
 
-            AttributeInstance maxHealthAttribute = target.getAttribute(Attribute.MAX_HEALTH);
-            String maxHealthString = maxHealthAttribute == null ? "E" : String.valueOf((int) maxHealthAttribute.getValue());
+                    BoundingBox box = candidate.getBoundingBox().expand(RAY_SIZE);
+                    Vector offset = box.getCenter().subtract(start);
+                    double along = offset.dot(direction);
+                    if (along < 0 || along > this.range + box.getWidthX()) continue;
 
-            Component displayName = this.buildDisplayName(player, target);
+                    double radiusSquared = (box.getWidthX() * box.getWidthX() + box.getHeight() * box.getHeight() + box.getWidthZ() * box.getWidthZ()) / 4;
+                    if (offset.subtract(direction.clone().multiply(along)).lengthSquared() > radiusSquared) continue;
+
+                    if (!player.canSee(candidate)) continue;
+
+                    // Exact check against the bounding box
+
+                    RayTraceResult hit = box.rayTrace(start, direction, this.range);
+                    if (hit == null) continue;
+
+                    double distance = hit.getHitPosition().distance(start);
+                    if (distance < targetDistance) {
+                        target = candidate;
+                        targetDistance = distance;
+                    }
 
-            this.actionBar.sendActionBar(
-                    player,
-                    Component.text("Looking at:").color(NamedTextColor.GRAY)
-                            .appendSpace()
-                            .append(displayName)
-                            .appendSpace()
-                            .append(Component.text("(❤" + (int) target.getHealth() + "/" + maxHealthString + ")"))
-            );
+                }
 
+            }
         }
 
+        if (target == null) return null;
+
+        // Check if the target is hidden behind a block
+
+        RayTraceResult blockHit = player.getWorld().rayTraceBlocks(eyeLocation, direction, targetDistance, FluidCollisionMode.NEVER, true);
+        if (blockHit != null && blockHit.getHitPosition().distance(start) < targetDistance) return null;
+
+        return target;
+    }
+
+    private int getCellSize() {
+        return Math.max(this.range, MIN_CELL_SIZE);
+    }
+
+    private long getCellKey(double x, double z) {
+        return cellKey(Math.floorDiv((int) Math.floor(x), this.getCellSize()), Math.floorDiv((int) Math.floor(z), this.getCellSize()));
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
     }
 
-    private Component buildDisplayName(@NotNull Player player, @NotNull Player target) {
-        if (this.scoreboardConfig == null) return target.displayName();
+    private Component buildDisplayName(@NotNull Component targetName, @Nullable Team team) {
+        if (this.scoreboardConfig == null) return targetName;
 
         @Nullable Component prefix = null;
         @Nullable Component suffix = null;
         @Nullable TextColor color = null;
 
-        Scoreboard scoreboard = player.getScoreboard();
-
-        Team team = scoreboard.getEntryTeam(target.getName());
         if (team != null) {
 
             if (this.scoreboardConfig.showPrefix()) {
@@ -132,9 +308,9 @@ public final class PlayerInfoActionbar implements Runnable {
         Component displayName = Component.empty();
         if (prefix != null) displayName = displayName.append(prefix);
         if (color != null) {
-            displayName = displayName.append(target.displayName()).color(color);
+            displayName = displayName.append(targetName).color(color);
         } else {
-            displayName = displayName.append(target.displayName());
+            displayName = displayName.append(targetName);
         }
         if (suffix != null) displayName = displayName.append(suffix);
 
@@ -167,6 +343,45 @@ public final class PlayerInfoActionbar implements Runnable {
         return range;
     }
 
+    /**
+     * Returns the maximum amount of players handled per run.
+     * @return players per run (0 for all players)
+     */
+    public int getPlayersPerRun() {
+        return this.playersPerRun;
+    }
+
+    /**
+     * Enables the staggered mode, where each run only handles the next part of the players.<br/>
+     * A player is then handled every {@code players / playersPerRun} runs,
+     * so the duration of the actionbar has to be longer than that.
+     * @param playersPerRun players per run (0 for all players)
+     */
+    public void setPlayersPerRun(int playersPerRun) {
+        if (playersPerRun < 0) throw new IllegalArgumentException("Players per run must not be negative");
+        this.playersPerRun = playersPerRun;
+    }
+
+    /**
+     * Returns the amount of runs after which an unchanged actionbar is sent again.
+     * @return refresh interval (0 if result caching is disabled)
+     */
+    public int getRefreshInterval() {
+        return this.refreshInterval;
+    }
+
+    /**
+     * Enables result caching.<br/>
+     * The actionbar is only sent when the target, its health or its name have changed, or when the refresh interval has passed.
+     * The refresh interval has to be shorter than the duration of the actionbar.
+     * @param refreshInterval amount of runs after which an unchanged actionbar is sent again (0 to disable caching)
+     */
+    public void setRefreshInterval(int refreshInterval) {
+        if (refreshInterval < 0) throw new IllegalArgumentException("Refresh interval must not be negative");
+        this.refreshInterval = refreshInterval;
+        if (refreshInterval == 0) this.viewers.clear();
+    }
+
     // ----- INNER CLASSES -----
 
     /**
@@ -215,6 +430,17 @@ public final class PlayerInfoActionbar implements Runnable {
 
     }
 
+    /**
+     * The inputs of the last actionbar of a viewer.
+     * @param target target uuid
+     * @param health health of the target
+     * @param maxHealth max health of the target (-1 if unknown)
+     * @param targetName display name of the target player (without team prefix, suffix and color)
+     * @param teamName name of the scoreboard team of the target in the scoreboard of the viewer (null if none or the team is not shown)
+     * @param lastSent run the actionbar has been sent
+     */
+    private record ViewerState(@NotNull UUID target, int health, int maxHealth, @NotNull Component targetName, @Nullable String teamName, long lastSent) {}
+
     /**
      * Configures which part of the player's scoreboard team should be shown to the player.
      * @param showPrefix shows the prefix of the team
@@ -0,0 +1,446 @@
+package net.chaossquad.mclib.combattracking;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only log of combat events for offline analysis.<br/>
+ * Events are put into a bounded lock-free ring buffer and written to disk by a background thread, so logging does not block the damage event path.
+ * If the buffer is full, events are dropped and counted (see {@link #getDroppedEvents()}).<br/>
+ * The log is written as binary records into files named {@code combat-<timestamp>.log}.
+ * A new file is started when the current file reaches the maximum file size, and the oldest files are deleted when there are more files than allowed.<br/>
+ * File format (big endian):
+ * <ul>
+ *     <li>Header: int magic {@code 0x4D43434C}, short version</li>
+ *     <li>Cause definition: byte {@code 0}, short cause id, UTF cause name (written before the first record using the cause)</li>
+ *     <li>Damage/death record: byte {@code 1} (damage) or {@code 2} (death), long timestamp (epoch millis), long+long victim uuid, long+long attacker uuid (0 if none), double amount, short cause id (-1 if none, -2 if followed by an UTF cause name)</li>
+ * </ul>
+ * Death records contain the killer as attacker and the total damage of the fight as amount.
+ * When a file has more than 32768 different causes, the causes without an id are written into each record.<br/>
+ * Existing log files in the directory are counted for the maximum amount of files, so old files are also deleted across restarts.
+ */
+public final class CombatLog {
+
+    /**
+     * Magic number at the start of every log file.
+     */
+    public static final int MAGIC = 0x4D43434C;
+
+    /**
+     * Version of the file format.
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * Record type of cause definitions.
+     */
+    public static final byte TYPE_CAUSE = 0;
+
+    /**
+     * Record type of damage records.
+     */
+    public static final byte TYPE_DAMAGE = 1;
+
+    /**
+     * Record type of death records.
+     */
+    public static final byte TYPE_DEATH = 2;
+
+    private static final String FILE_PREFIX = "combat-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final long CLOSED = 1L << 62;
+    private static final short NO_CAUSE = -1;
+    private static final short INLINE_CAUSE = -2;
+
+    @NotNull private final Path directory;
+    @NotNull private final Logger logger;
+    private final long maxFileSize;
+    private final int maxFiles;
+
+    // Ring buffer (multiple producers, single consumer)
+    private final int mask;
+    @NotNull private final AtomicLongArray sequences;
+    @NotNull private final byte[] types;
+    @NotNull private final long[] timestamps;
+    @NotNull private final long[] victimsMost;
+    @NotNull private final long[] victimsLeast;
+    @NotNull private final long[] attackersMost;
+    @NotNull private final long[] attackersLeast;
+    @NotNull private final double[] amounts;
+    @NotNull private final String[] causes;
+    @NotNull private final AtomicLong tail; // Claimed positions, the CLOSED bit is set when the log is removed
+    private long head;
+    @NotNull private final AtomicLong droppedEvents;
+    @NotNull private final AtomicLong writtenEvents;
+
+    // Writer (only accessed by the writer thread)
+    @NotNull private final Thread writer;
+    @NotNull private final Deque<Path> files;
+    @NotNull private final Map<String, Short> causeIds;
+    @Nullable private DataOutputStream output;
+    private long fileSize;
+    private volatile boolean writerIdle;
+    private volatile boolean removed;
+
+    /**
+     * Creates a new combat log and starts its writer thread.
+     * @param directory directory of the log files
+     * @param capacity capacity of the ring buffer (rounded up to a power of two)
+     * @param maxFileSize size in bytes after which a new file is started
+     * @param maxFiles maximum amount of log files (0 for unlimited)
+     * @param logger logger for write errors
+     * @throws IOException if the directory cannot be created
+     */
+    public CombatLog(@NotNull Path directory, int capacity, long maxFileSize, int maxFiles, @NotNull Logger logger) throws IOException {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        if (maxFileSize <= 0) throw new IllegalArgumentException("Max file size must be positive");
+        if (maxFiles < 0) throw new IllegalArgumentException("Max files must not be negative");
+
+        this.directory = directory;
+        this.logger = logger;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+        this.types = new byte[size];
+        this.timestamps = new long[size];
+        this.victimsMost = new long[size];
+        this.victimsLeast = new long[size];
+        this.attackersMost = new long[size];
+        this.attackersLeast = new long[size];
+        this.amounts = new double[size];
+        this.causes = new String[size];
+        this.tail = new AtomicLong();
+        this.head = 0;
+        this.droppedEvents = new AtomicLong();
+        this.writtenEvents = new AtomicLong();
+
+        Files.createDirectories(directory);
+        this.files = new ArrayDeque<>(findLogFiles(directory));
+        this.causeIds = new HashMap<>();
+        this.output = null;
+        this.fileSize = 0;
+        this.writerIdle = false;
+        this.removed = false;
+
+        this.writer = new Thread(this::runWriter, "CombatLog-Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // ----- LOGGING -----
+
+    /**
+     * Logs damage.
+     * @param victim damaged player
+     * @param attacker damager (or null)
+     * @param amount damage
+     * @param cause damage cause (or null)
+     * @return true if the event has been queued, false if the buffer is full or the log has been removed
+     */
+    public boolean logDamage(@NotNull UUID victim, @Nullable UUID attacker, double amount, @Nullable String cause) {
+        return this.offer(TYPE_DAMAGE, victim, attacker, amount, cause);
+    }
+
+    /**
+     * Logs a death.
+     * @param victim player who died
+     * @param killer killer (or null)
+     * @param totalDamage total damage of the fight
+     * @param cause death cause (or null)
+     * @return true if the event has been queued, false if the buffer is full or the log has been removed
+     */
+    public boolean logDeath(@NotNull UUID victim, @Nullable UUID killer, double totalDamage, @Nullable String cause) {
+        return this.offer(TYPE_DEATH, victim, killer, totalDamage, cause);
+    }
+
+    private boolean offer(byte type, @NotNull UUID victim, @Nullable UUID attacker, double amount, @Nullable String cause) {
+        long position;
+        int index;
+
+        while (true) {
+            position = this.tail.get();
+            if ((position & CLOSED) != 0) return false;
+            index = (int) (position & this.mask);
+            long difference = this.sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) break;
+            } else if (difference < 0) {
+                this.droppedEvents.incrementAndGet();
+                return false;
+            }
+
+        }
+
+        this.types[index] = type;
+        this.timestamps[index] = System.currentTimeMillis();
+        this.victimsMost[index] = victim.getMostSignificantBits();
+        this.victimsLeast[index] = victim.getLeastSignificantBits();
+        this.attackersMost[index] = attacker != null ? attacker.getMostSignificantBits() : 0;
+        this.attackersLeast[index] = attacker != null ? attacker.getLeastSignificantBits() : 0;
+        this.amounts[index] = amount;
+        this.causes[index] = cause;
+
+        // Publishes the slot to the writer
+        this.sequences.set(index, position + 1);
+        if (this.writerIdle) LockSupport.unpark(this.writer);
+        return true;
+    }
+
+    // ----- WRITER -----
+
+    private void runWriter() {
+
+        while (true) {
+            if (this.drain() > 0) continue;
+
+            // Stop when the log is closed and all claimed slots have been published and written
+            long tail = this.tail.get();
+            if ((tail & CLOSED) != 0 && this.head == (tail & ~CLOSED)) break;
+
+            // A slot has been claimed but not published yet
+            if (this.head != (tail & ~CLOSED)) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            this.flush();
+
+            // Producers unpark the writer when they see the idle flag, so the slot has to be checked again after setting it
+            this.writerIdle = true;
+            if (!this.isPublished(this.head) && (this.tail.get() & CLOSED) == 0) LockSupport.park(this);
+            this.writerIdle = false;
+        }
+
+        this.closeFile();
+    }
+
+    private boolean isPublished(long position) {
+        return this.sequences.get((int) (position & this.mask)) == position + 1;
+    }
+
+    /**
+     * Writes all published records.
+     * @return amount of written records
+     */
+    private int drain() {
+        int written = 0;
+
+        while (this.isPublished(this.head)) {
+            int index = (int) (this.head & this.mask);
+
+            try {
+                this.write(index);
+            } catch (IOException e) {
+                this.logger.log(Level.WARNING, "Failed to write combat log record", e);
+                this.closeFile();
+            }
+
+            this.causes[index] = null;
+            this.sequences.set(index, this.head + this.mask + 1);
+            this.head++;
+            written++;
+        }
+
+        return written;
+    }
+
+    private void write(int index) throws IOException {
+        if (this.output == null || this.fileSize >= this.maxFileSize) this.rotate();
+        DataOutputStream output = this.output;
+        if (output == null) return;
+
+        short causeId = NO_CAUSE;
+        String cause = this.causes[index];
+
+        if (cause != null) {
+            Short id = this.causeIds.get(cause);
+
+            if (id == null && this.causeIds.size() > Short.MAX_VALUE) {
+                id = INLINE_CAUSE;
+            } else if (id == null) {
+                id = (short) this.causeIds.size();
+                this.causeIds.put(cause, id);
+                output.writeByte(TYPE_CAUSE);
+                output.writeShort(id);
+                output.writeUTF(cause);
+            }
+
+            causeId = id;
+        }
+
+        output.writeByte(this.types[index]);
+        output.writeLong(this.timestamps[index]);
+        output.writeLong(this.victimsMost[index]);
+        output.writeLong(this.victimsLeast[index]);
+        output.writeLong(this.attackersMost[index]);
+        output.writeLong(this.attackersLeast[index]);
+        output.writeDouble(this.amounts[index]);
+        output.writeShort(causeId);
+        if (causeId == INLINE_CAUSE) output.writeUTF(cause);
+
+        this.fileSize = output.size();
+        this.writtenEvents.incrementAndGet();
+    }
+
+    /**
+     * Closes the current file and starts a new one.
+     * @throws IOException if the new file cannot be created
+     */
+    private void rotate() throws IOException {
+        this.closeFile();
+
+        long timestamp = System.currentTimeMillis();
+        Path file = this.directory.resolve(FILE_PREFIX + timestamp + FILE_SUFFIX);
+        for (int i = 1; Files.exists(file); i++) {
+            file = this.directory.resolve(FILE_PREFIX + timestamp + "-" + i + FILE_SUFFIX);
+        }
+
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        this.output.writeInt(MAGIC);
+        this.output.writeShort(VERSION);
+        this.fileSize = this.output.size();
+        this.causeIds.clear();
+        this.files.addLast(file);
+
+        while (this.maxFiles > 0 && this.files.size() > this.maxFiles) {
+            Path oldFile = this.files.removeFirst();
+
+            try {
+                Files.deleteIfExists(oldFile);
+            } catch (IOException e) {
+                this.logger.log(Level.WARNING, "Failed to delete old combat log file " + oldFile, e);
+            }
+
+        }
+
+    }
+
+    /**
+     * Returns the existing log files in the directory, oldest first.
+     * @param directory directory
+     * @return log files
+     * @throws IOException if the directory cannot be listed
+     */
+    private static List<Path> findLogFiles(@NotNull Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Map<Path, Long> lastModified = new HashMap<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                if (!Files.isRegularFile(file)) continue;
+                files.add(file);
+                lastModified.put(file, Files.getLastModifiedTime(file).toMillis());
+            }
+        }
+
+        files.sort(Comparator.<Path>comparingLong(lastModified::get).thenComparing(Path::getFileName));
+        return files;
+    }
+
+    private void flush() {
+        if (this.output == null) return;
+
+        try {
+            this.output.flush();
+        } catch (IOException e) {
+            this.logger.log(Level.WARNING, "Failed to flush combat log", e);
+        }
+
+    }
+
+    private void closeFile() {
+        if (this.output == null) return;
+
+        try {
+            this.output.close();
+        } catch (IOException e) {
+            this.logger.log(Level.WARNING, "Failed to close combat log file", e);
+        }
+
+        this.output = null;
+    }
+
+    // ----- INFORMATION -----
+
+    /**
+     * Returns the amount of events that have been dropped because the buffer was full.
+     * @return dropped events
+     */
+    public long getDroppedEvents() {
+        return this.droppedEvents.get();
+    }
+
+    /**
+     * Returns the amount of events that have been written.
+     * @return written events
+     */
+    public long getWrittenEvents() {
+        return this.writtenEvents.get();
+    }
+
+    /**
+     * Returns the directory of the log files.
+     * @return directory
+     */
+    public @NotNull Path getDirectory() {
+        return this.directory;
+    }
+
+    // ----- REMOVE -----
+
+    /**
+     * Stops accepting events, writes all queued events and closes the log file.<br/>
+     * Blocks until the writer thread has finished.
+     */
+    public void remove() {
+        if (this.removed) return;
+        this.removed = true;
+
+        // Claims after this point fail, claims before it are written by the writer before it stops
+        this.tail.getAndUpdate(tail -> tail | CLOSED);
+        LockSupport.unpark(this.writer);
+
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /**
+     * Returns true if the log has been removed.
+     * @return removed
+     */
+    public boolean isRemoved() {
+        return this.removed;
+    }
+
+}
@@ -10,16 +10,35 @@ import java.util.*;
  * You need to call {@link CombatTracker#onPlayerDamage(UUID, UUID, double)} when a player is damaged by a player and {@link CombatTracker#onPlayerDeath(UUID)} when the player died.
  * You also need to call {@link CombatTracker#task()} every second.
  * If you call {@link CombatTracker#onPlayerDeath(UUID)}, you will get the current player fight returned, which contains the information about all players involved in this fight.
- * Look at {@link PlayerFight} to see how to use it.
+ * Look at {@link PlayerFight} to see how to use it.<br/>
+ * A reverse index of the victims each player has attacked is maintained, so {@link #isInCombat(UUID)} and {@link #getInvolvedFights(UUID)} do not need to scan all fights.
+ * Fights are scheduled in a timing wheel by their expiry tick, so {@link #task()} only touches fights which are due to expire.
  */
 public class CombatTracker {
+    private static final int EXPIRY_WHEEL_SIZE = 64; // power of two, larger than PlayerFight.EXPIRATION
     private final Map<UUID, PlayerFight> playerFights;
+    private final Map<UUID, Set<UUID>> attackedPlayers;
+    private final List<UUID>[] expiryWheel;
+    private final Map<UUID, PlayerFight> playerFightsView;
+    private volatile long tick;
+    private int damageDecayHalfLife;
+    @Nullable private volatile CombatLog combatLog;
 
     /**
      * Creates a CombatTracker.
      */
+    @SuppressWarnings("unchecked")
     public CombatTracker() {
         this.playerFights = Collections.synchronizedMap(new HashMap<>());
+        this.attackedPlayers = new HashMap<>();
+        this.expiryWheel = new List[EXPIRY_WHEEL_SIZE];
+        for (int i = 0; i < EXPIRY_WHEEL_SIZE; i++) {
+            this.expiryWheel[i] = new ArrayList<>();
+        }
+        this.playerFightsView = new PlayerFightsView();
+        this.tick = 0;
+        this.damageDecayHalfLife = 0;
+        this.combatLog = null;
     }
 
     // ----- FUNCTIONALITY -----
@@ -30,19 +49,29 @@ public class CombatTracker {
      */
     public void task() {
 
-        for (UUID playerId : Map.copyOf(this.playerFights).keySet()) {
-            PlayerFight fight = this.playerFights.get(playerId);
+        synchronized (this.playerFights) {
+            this.tick++;
 
-            if (fight == null) {
-                continue;
-            }
+            List<UUID> bucket = this.expiryWheel[(int) (this.tick & (EXPIRY_WHEEL_SIZE - 1))];
+
+            // Fights are rescheduled into other buckets, since their expiry is always less than a wheel rotation ahead
+            for (UUID playerId : bucket) {
+                PlayerFight fight = this.playerFights.get(playerId);
+
+                // Stale entry of a removed fight or a fight that has already been rescheduled
+                if (fight == null || fight.getScheduledTime() != this.tick) {
+                    continue;
+                }
 
-            fight.task();
+                if (fight.hasExpired()) {
+                    this.removeFight(playerId);
+                } else {
+                    this.scheduleExpiry(playerId, fight);
+                }
 
-            if (fight.hasExpired()) {
-                this.playerFights.remove(playerId);
             }
 
+            bucket.clear();
         }
 
     }
@@ -56,14 +85,44 @@ public class CombatTracker {
      * @return the amount of damage the player who dealt the damage has dealt in total
      */
     public double onPlayerDamage(@NotNull UUID player, @NotNull UUID damager, double damage) {
-        PlayerFight fight = this.playerFights.get(player);
+        return this.onPlayerDamage(player, damager, damage, null);
+    }
+
+    /**
+     * Adds player damage.
+     * Should be called in damage events.
+     * @param player the damaged player
+     * @param damager the player who dealt the damage
+     * @param damage the amount of damage
+     * @param cause the damage cause for the combat log (or null)
+     * @return the amount of damage the player who dealt the damage has dealt in total
+     */
+    public double onPlayerDamage(@NotNull UUID player, @NotNull UUID damager, double damage, @Nullable String cause) {
+
+        CombatLog combatLog = this.combatLog;
+        if (combatLog != null) combatLog.logDamage(player, damager, damage, cause);
+
+        synchronized (this.playerFights) {
+            PlayerFight fight = this.playerFights.get(player);
 
-        if (fight == null) {
-            fight = new PlayerFight();
-            this.playerFights.put(player, fight);
+            boolean newFight = fight == null;
+
+            if (newFight) {
+                fight = new PlayerFight(this::getTick, this.damageDecayHalfLife);
+                this.playerFights.put(player, fight);
+            }
+
+            if (!fight.isDamager(damager)) {
+                this.attackedPlayers.computeIfAbsent(damager, id -> new HashSet<>()).add(player);
+            }
+
+            // Existing fights are rescheduled lazily when their old expiry bucket is reached
+            double totalDamage = fight.addDamage(damager, damage);
+            if (newFight) this.scheduleExpiry(player, fight);
+
+            return totalDamage;
         }
 
-        return fight.addDamage(damager, damage);
     }
 
     /**
@@ -73,17 +132,150 @@ public class CombatTracker {
      * @return the player fight for using the tracked data
      */
     public @Nullable PlayerFight onPlayerDeath(@NotNull UUID playerId) {
-        return this.playerFights.remove(playerId);
+        return this.onPlayerDeath(playerId, null);
+    }
+
+    /**
+     * Removes a combat.
+     * Should be called on player death.
+     * @param playerId the player who died
+     * @param cause the death cause for the combat log (or null)
+     * @return the player fight for using the tracked data
+     */
+    public @Nullable PlayerFight onPlayerDeath(@NotNull UUID playerId, @Nullable String cause) {
+        PlayerFight fight = this.removeFight(playerId);
+
+        CombatLog combatLog = this.combatLog;
+        if (combatLog != null) {
+            combatLog.logDeath(playerId, PlayerFight.getKiller(fight), fight != null ? fight.getTotalDamage() : 0, cause);
+        }
+
+        return fight;
+    }
+
+    /**
+     * Puts the fight into the expiry wheel bucket of its expiry tick.
+     * @param playerId victim
+     * @param fight fight
+     */
+    private void scheduleExpiry(@NotNull UUID playerId, @NotNull PlayerFight fight) {
+        long expiryTime = fight.getExpiryTime();
+        fight.setScheduledTime(expiryTime);
+        this.expiryWheel[(int) (expiryTime & (EXPIRY_WHEEL_SIZE - 1))].add(playerId);
+    }
+
+    /**
+     * Adds a fight to the map, the attacker index and the expiry wheel.
+     * @param playerId victim
+     * @param fight fight
+     */
+    private void addFight(@NotNull UUID playerId, @NotNull PlayerFight fight) {
+
+        synchronized (this.playerFights) {
+            this.playerFights.put(playerId, fight);
+
+            for (UUID damager : fight.getDamagers()) {
+                this.attackedPlayers.computeIfAbsent(damager, id -> new HashSet<>()).add(playerId);
+            }
+
+            this.scheduleExpiry(playerId, fight);
+        }
+
+    }
+
+    /**
+     * Removes the fight of the specified player without handling it as a death.
+     * @param playerId victim
+     * @return removed fight or null
+     */
+    public @Nullable PlayerFight removeFight(@NotNull UUID playerId) {
+
+        synchronized (this.playerFights) {
+            PlayerFight fight = this.playerFights.remove(playerId);
+            if (fight == null) return null;
+
+            for (UUID damager : fight.getDamagers()) {
+                Set<UUID> victims = this.attackedPlayers.get(damager);
+                if (victims == null) continue;
+
+                victims.remove(playerId);
+                if (victims.isEmpty()) this.attackedPlayers.remove(damager);
+            }
+
+            return fight;
+        }
+
+    }
+
+    /**
+     * Removes all fights without handling them as deaths.
+     */
+    public void clearFights() {
+
+        synchronized (this.playerFights) {
+            this.playerFights.clear();
+            this.attackedPlayers.clear();
+            for (List<UUID> bucket : this.expiryWheel) bucket.clear();
+        }
+
+    }
+
+    // ----- SETTINGS -----
+
+    /**
+     * Returns the half-life of the damage contribution used for kill and assist attribution.
+     * @return half-life in ticks (0 if decay is disabled)
+     */
+    public int getDamageDecayHalfLife() {
+        return this.damageDecayHalfLife;
+    }
+
+    /**
+     * Sets the half-life of the damage contribution used for kill and assist attribution.<br/>
+     * With damage decay, recent damage counts more than old damage when determining the killer.
+     * Only applies to fights created after the change.
+     * @param damageDecayHalfLife half-life in ticks (calls of {@link #task()}), 0 to disable decay
+     */
+    public void setDamageDecayHalfLife(int damageDecayHalfLife) {
+        if (damageDecayHalfLife < 0) throw new IllegalArgumentException("Half-life must not be negative");
+        this.damageDecayHalfLife = damageDecayHalfLife;
+    }
+
+    /**
+     * Returns the combat log damage and deaths are written to.
+     * @return combat log or null
+     */
+    public @Nullable CombatLog getCombatLog() {
+        return this.combatLog;
+    }
+
+    /**
+     * Sets the combat log damage and deaths are written to.<br/>
+     * The combat log is not removed by the tracker.
+     * @param combatLog combat log (or null to disable logging)
+     */
+    public void setCombatLog(@Nullable CombatLog combatLog) {
+        this.combatLog = combatLog;
     }
 
     // ----- INFORMATION -----
 
     /**
-     * Returns the map of the currently ongoing PlayerFights.
+     * Returns the current tick of the tracker (the amount of {@link #task()} calls).
+     * @return tick
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Returns the map of the currently ongoing PlayerFights.<br/>
+     * The map is a live view. Changes are applied to the tracker, including its attacker index and expiry wheel.
+     * Iterating returns a snapshot of the fights.
      * @return map of player fights
      */
     public @NotNull Map<UUID, PlayerFight> getPlayerFights() {
-        return this.playerFights;
+        return this.playerFightsView;
     }
 
     /**
@@ -101,17 +293,27 @@ public class CombatTracker {
      * @return list of fights
      */
     public @NotNull List<PlayerFight> getInvolvedFights(@NotNull UUID playerId) {
-        List<PlayerFight> involvedFights = new ArrayList<>();
 
-        for (Map.Entry<UUID, PlayerFight> entry : this.playerFights.entrySet()) {
+        synchronized (this.playerFights) {
+            List<PlayerFight> involvedFights = new ArrayList<>();
+
+            PlayerFight ownFight = this.playerFights.get(playerId);
+            if (ownFight != null) involvedFights.add(ownFight);
+
+            Set<UUID> victims = this.attackedPlayers.get(playerId);
+            if (victims != null) {
+
+                for (UUID victim : victims) {
+                    PlayerFight fight = this.playerFights.get(victim);
+                    if (fight == null || fight == ownFight) continue;
+                    involvedFights.add(fight);
+                }
 
-            if (entry.getKey().equals(playerId) || entry.getValue().getStats().containsKey(playerId)) {
-                involvedFights.add(entry.getValue());
             }
 
+            return involvedFights;
         }
 
-        return involvedFights;
     }
 
     /**
@@ -120,7 +322,104 @@ public class CombatTracker {
      * @return player in combat
      */
     public boolean isInCombat(@NotNull UUID playerId) {
-        return !this.getInvolvedFights(playerId).isEmpty();
+
+        synchronized (this.playerFights) {
+            return this.playerFights.containsKey(playerId) || this.attackedPlayers.containsKey(playerId);
+        }
+
+    }
+
+    // ----- VIEW -----
+
+    /**
+     * Live view of the player fights which keeps the attacker index and the expiry wheel up to date.
+     */
+    private final class PlayerFightsView extends AbstractMap<UUID, PlayerFight> {
+
+        @Override
+        public int size() {
+            return playerFights.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return playerFights.containsKey(key);
+        }
+
+        @Override
+        public PlayerFight get(Object key) {
+            return playerFights.get(key);
+        }
+
+        @Override
+        public PlayerFight put(@NotNull UUID key, @NotNull PlayerFight value) {
+
+            synchronized (playerFights) {
+                PlayerFight previous = removeFight(key);
+                addFight(key, value);
+                return previous;
+            }
+
+        }
+
+        @Override
+        public PlayerFight remove(Object key) {
+            return key instanceof UUID playerId ? removeFight(playerId) : null;
+        }
+
+        @Override
+        public void clear() {
+            clearFights();
+        }
+
+        @Override
+        public @NotNull Set<Entry<UUID, PlayerFight>> entrySet() {
+
+            return new AbstractSet<>() {
+
+                @Override
+                public @NotNull Iterator<Entry<UUID, PlayerFight>> iterator() {
+                    List<Entry<UUID, PlayerFight>> snapshot;
+
+                    synchronized (playerFights) {
+                        snapshot = new ArrayList<>(playerFights.size());
+                        for (Entry<UUID, PlayerFight> entry : playerFights.entrySet()) snapshot.add(new SimpleImmutableEntry<>(entry));
+                    }
+
+                    Iterator<Entry<UUID, PlayerFight>> iterator = snapshot.iterator();
+
+                    return new Iterator<>() {
+                        private Entry<UUID, PlayerFight> current;
+
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<UUID, PlayerFight> next() {
+                            this.current = iterator.next();
+                            return this.current;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (this.current == null) throw new IllegalStateException();
+                            removeFight(this.current.getKey());
+                            this.current = null;
+                        }
+
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return playerFights.size();
+                }
+
+            };
+        }
+
     }
 
 }
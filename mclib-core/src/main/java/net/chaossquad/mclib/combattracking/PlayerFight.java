@@ -1,22 +1,60 @@
 package net.chaossquad.mclib.combattracking;
 
 import java.util.*;
+import java.util.function.LongSupplier;
 
 /**
  * Represents a fight against one player.
  * You can use {@link PlayerFight#getStats()} to get the damaged caused by all players against the player that was damaged.
- * You can use {@link PlayerFight#getKiller(PlayerFight)} to get the player with the most damage, and {@link PlayerFight#getAssistants(PlayerFight, UUID)} to get all players that dealt damage and are not the killer.
+ * You can use {@link PlayerFight#getKiller(PlayerFight)} to get the player with the most damage, and {@link PlayerFight#getAssistants(PlayerFight, UUID)} to get all players that dealt damage and are not the killer.<br/>
+ * If damage decay is enabled, the killer is the player with the most recent damage: the contribution of each hit halves every half-life.
+ * In that case, damagers whose decayed contribution is less than 1/16 of the killer's are no longer counted as assistants.
+ * The ranking is kept up to date while recording damage, so the killer and the assistants can be determined without sorting.
  */
 public class PlayerFight {
-    private final Map<UUID, Double> damagers;
-    private int expires;
+
+    /**
+     * The amount of ticks (calls of {@link CombatTracker#task()}) after the last damage after which a fight expires.
+     */
+    public static final int EXPIRATION = 30;
+
+    private static final double ASSIST_CONTRIBUTION = 1.0 / 16;
+    private static final double RENORMALIZE_EXPONENT = 500;
+
+    private final PlayerSlots damagers;
+    private final LongSupplier clock;
+    private final double decayRate;
+    private double[] damage;
+    private double[] scores;
+    private int topSlot;
+    private long landmark;
+    private long time;
+    private long expiryTime;
+    private long scheduledTime;
 
     /**
      * Creates a player fight.
      */
     public PlayerFight() {
-        this.damagers = Collections.synchronizedMap(new HashMap<>());
-        this.expires = 30;
+        this(null, 0);
+    }
+
+    /**
+     * Creates a player fight.
+     * @param clock clock of the combat tracker (or null to use an own clock that is advanced by {@link #task()})
+     * @param decayHalfLife half-life of the damage contribution in ticks (0 to disable decay)
+     */
+    PlayerFight(LongSupplier clock, int decayHalfLife) {
+        this.damagers = new PlayerSlots(4);
+        this.clock = clock;
+        this.decayRate = decayHalfLife > 0 ? Math.log(2) / decayHalfLife : 0;
+        this.damage = new double[4];
+        this.scores = this.decayRate > 0 ? new double[4] : this.damage;
+        this.topSlot = -1;
+        this.time = 0;
+        this.landmark = this.now();
+        this.expiryTime = this.now() + EXPIRATION;
+        this.scheduledTime = -1;
     }
 
     /**
@@ -25,28 +63,94 @@ public class PlayerFight {
      * @param damage the damage that has been dealt
      * @return the total damage dealt by the damager
      */
-    public double addDamage(UUID damager, double damage) {
-        this.expires = 30;
+    public synchronized double addDamage(UUID damager, double damage) {
+        long now = this.now();
+        this.expiryTime = now + EXPIRATION;
+
+        int slot = this.damagers.getOrAssign(damager);
+
+        if (slot >= this.damage.length) {
+            int length = Math.max(this.damage.length * 2, slot + 1);
+            this.damage = Arrays.copyOf(this.damage, length);
+            this.scores = this.decayRate > 0 ? Arrays.copyOf(this.scores, length) : this.damage;
+        }
+
+        this.damage[slot] += damage;
+
+        // Forward decay: newer damage gets a higher weight, so the ranking does not change over time
+        if (this.decayRate > 0) {
+            double exponent = this.decayRate * (now - this.landmark);
+
+            if (exponent > RENORMALIZE_EXPONENT) {
+                double factor = Math.exp(-exponent);
+                for (int i = 0; i < this.damagers.getSlotBound(); i++) {
+                    this.scores[i] *= factor;
+                }
+                this.landmark = now;
+                exponent = 0;
+            }
 
-        Double playerDamage = this.damagers.get(damager);
+            this.scores[slot] += damage * Math.exp(exponent);
+        }
 
-        if (playerDamage == null) {
-            playerDamage = 0.0;
+        if (this.topSlot < 0 || this.scores[slot] >= this.scores[this.topSlot]) {
+            this.topSlot = slot;
         }
 
-        playerDamage = playerDamage + damage;
-        this.damagers.put(damager, playerDamage);
+        return this.damage[slot];
+    }
+
+    /**
+     * Returns the damage dealt by the specified damager.
+     * @param damager damager
+     * @return dealt damage (0 if the damager has not dealt damage)
+     */
+    public synchronized double getDamage(UUID damager) {
+        int slot = this.damagers.get(damager);
+        if (slot < 0) return 0;
+        return this.damage[slot];
+    }
+
+    /**
+     * Returns the decayed damage contribution of the specified damager.<br/>
+     * Returns the dealt damage if damage decay is disabled.
+     * @param damager damager
+     * @return decayed damage (0 if the damager has not dealt damage)
+     */
+    public synchronized double getDecayedDamage(UUID damager) {
+        int slot = this.damagers.get(damager);
+        if (slot < 0) return 0;
+        if (this.decayRate <= 0) return this.damage[slot];
+        return this.scores[slot] * Math.exp(-this.decayRate * (this.now() - this.landmark));
+    }
+
+    /**
+     * Returns true if damage decay is enabled for this fight.
+     * @return damage decay enabled
+     */
+    public boolean isDamageDecayEnabled() {
+        return this.decayRate > 0;
+    }
 
-        return playerDamage;
+    /**
+     * Returns true if the specified player has dealt damage in this fight.
+     * @param damager damager
+     * @return is damager
+     */
+    public synchronized boolean isDamager(UUID damager) {
+        return this.damagers.get(damager) >= 0;
     }
 
+    // ----- EXPIRATION -----
+
     /**
-     * The task. Has to be called by {@link CombatTracker#task()} to update the values here.
+     * Advances the clock of fights which have been created without a {@link CombatTracker}.<br/>
+     * Fights of a CombatTracker use the clock of the tracker, so this method does nothing for them.
      */
-    public void task() {
+    public synchronized void task() {
 
-        if (this.expires > 0) {
-            this.expires--;
+        if (this.clock == null) {
+            this.time++;
         }
 
     }
@@ -55,39 +159,96 @@ public class PlayerFight {
      * Returns true when the fight has expired.
      * @return expired
      */
-    public boolean hasExpired() {
-        return this.expires <= 0;
+    public synchronized boolean hasExpired() {
+        return this.now() >= this.expiryTime;
+    }
+
+    /**
+     * Returns the tick at which the fight expires if no further damage is dealt.
+     * @return expiry tick
+     */
+    synchronized long getExpiryTime() {
+        return this.expiryTime;
+    }
+
+    /**
+     * Returns the tick of the expiry wheel bucket the fight is currently scheduled in.
+     * @return scheduled tick or -1
+     */
+    synchronized long getScheduledTime() {
+        return this.scheduledTime;
     }
 
+    /**
+     * Sets the tick of the expiry wheel bucket the fight is scheduled in.
+     * @param scheduledTime scheduled tick
+     */
+    synchronized void setScheduledTime(long scheduledTime) {
+        this.scheduledTime = scheduledTime;
+    }
+
+    private long now() {
+        return this.clock != null ? this.clock.getAsLong() : this.time;
+    }
+
+    // ----- STATS -----
+
     /**
      * Returns a map of all damagers with their dealt damage.
      * @return damager-damage-map
      */
-    public Map<UUID, Double> getStats() {
-        return Map.copyOf(this.damagers);
+    public synchronized Map<UUID, Double> getStats() {
+        Map<UUID, Double> stats = new HashMap<>();
+
+        for (int slot = 0; slot < this.damagers.getSlotBound(); slot++) {
+            UUID damager = this.damagers.getOwner(slot);
+            if (damager == null) continue;
+            stats.put(damager, this.damage[slot]);
+        }
+
+        return Collections.unmodifiableMap(stats);
     }
 
     /**
-     * Returns the damage dealt by all players in total.
-     * @return global dealt damage
+     * Returns all damagers of this fight.
+     * @return damagers
      */
-    public double getTotalDamage() {
-        double totalDamage = 0;
+    synchronized List<UUID> getDamagers() {
+        List<UUID> damagers = new ArrayList<>(this.damagers.size());
 
-        for (UUID playerId : Map.copyOf(this.damagers).keySet()) {
-            Double damage = this.damagers.get(playerId);
+        for (int slot = 0; slot < this.damagers.getSlotBound(); slot++) {
+            UUID damager = this.damagers.getOwner(slot);
+            if (damager == null) continue;
+            damagers.add(damager);
+        }
 
-            if (playerId == null) {
-                continue;
-            }
+        return damagers;
+    }
 
-            totalDamage = totalDamage + damage;
+    /**
+     * Returns the damage dealt by all players in total.
+     * @return global dealt damage
+     */
+    public synchronized double getTotalDamage() {
+        double totalDamage = 0;
 
+        for (int slot = 0; slot < this.damagers.getSlotBound(); slot++) {
+            totalDamage = totalDamage + this.damage[slot];
         }
 
         return totalDamage;
     }
 
+    /**
+     * Returns the damager with the most dealt damage (or the most decayed damage if damage decay is enabled).
+     * @return top damager or null if no damage has been dealt
+     */
+    public synchronized UUID getTopDamager() {
+        return this.damagers.getOwner(this.topSlot);
+    }
+
+    // ----- ATTRIBUTION -----
+
     /**
      * Returns the killer.<br/>
      * The killer is the player with the most damage.
@@ -100,15 +261,7 @@ public class PlayerFight {
             return null;
         }
 
-        List<Map.Entry<UUID, Double>> entries = new ArrayList<>(fight.getStats().entrySet());
-
-        if (entries.isEmpty()) {
-            return null;
-        }
-
-        entries.sort(Map.Entry.comparingByValue());
-
-        return entries.get(entries.size() - 1).getKey();
+        return fight.getTopDamager();
     }
 
     /**
@@ -123,18 +276,28 @@ public class PlayerFight {
             return List.of();
         }
 
-        Map<UUID, Double> stats = new HashMap<>(fight.getStats());
-
-        if (stats.isEmpty()) {
-            return List.of();
-        }
-
-        stats.remove(getKiller(fight));
+        return fight.getAssistants(without);
+    }
 
-        if (without != null) {
-            stats.remove(without);
+    /**
+     * Returns all damagers except the top damager and the specified damager.
+     * @param without damager to exclude
+     * @return kill assistant list
+     */
+    private synchronized List<UUID> getAssistants(UUID without) {
+        if (this.topSlot < 0) return List.of();
+
+        // All scores decay with the same factor, so they can be compared without applying it
+        double minimumScore = this.decayRate > 0 ? this.scores[this.topSlot] * ASSIST_CONTRIBUTION : Double.NEGATIVE_INFINITY;
+        List<UUID> assistants = new ArrayList<>();
+
+        for (int slot = 0; slot < this.damagers.getSlotBound(); slot++) {
+            UUID damager = this.damagers.getOwner(slot);
+            if (damager == null || slot == this.topSlot || damager.equals(without)) continue;
+            if (this.scores[slot] < minimumScore) continue;
+            assistants.add(damager);
         }
 
-        return List.copyOf(stats.keySet());
+        return List.copyOf(assistants);
     }
 }
@@ -0,0 +1,187 @@
+package net.chaossquad.mclib.combattracking;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Assigns int slots to player UUIDs.<br/>
+ * The slots can be used as indices of primitive arrays, so values per player can be stored without boxing.
+ * The UUID lookup uses an open-addressed hash table and does not allocate.
+ * Slots of removed players are reused.<br/>
+ * This class is not thread-safe.
+ */
+final class PlayerSlots {
+    @NotNull private UUID[] keys;
+    @NotNull private int[] values;
+    @NotNull private UUID[] owners;
+    @NotNull private int[] freeSlots;
+    private int freeCount;
+    private int nextSlot;
+    private int size;
+
+    /**
+     * Creates a new PlayerSlots instance.
+     * @param expectedSize expected amount of players
+     */
+    PlayerSlots(int expectedSize) {
+        int capacity = 4;
+        while (capacity < expectedSize * 2) capacity <<= 1;
+
+        this.keys = new UUID[capacity];
+        this.values = new int[capacity];
+        this.owners = new UUID[Math.max(expectedSize, 2)];
+        this.freeSlots = new int[0];
+        this.freeCount = 0;
+        this.nextSlot = 0;
+        this.size = 0;
+    }
+
+    // ----- LOOKUP -----
+
+    /**
+     * Returns the slot of the specified player.
+     * @param playerId player
+     * @return slot or -1 if the player has no slot
+     */
+    int get(@NotNull UUID playerId) {
+        int mask = this.keys.length - 1;
+        int index = hash(playerId) & mask;
+
+        while (true) {
+            UUID key = this.keys[index];
+            if (key == null) return -1;
+            if (key.equals(playerId)) return this.values[index];
+            index = (index + 1) & mask;
+        }
+
+    }
+
+    /**
+     * Returns the slot of the specified player and assigns a new slot if the player has none.
+     * @param playerId player
+     * @return slot
+     */
+    int getOrAssign(@NotNull UUID playerId) {
+        int slot = this.get(playerId);
+        if (slot >= 0) return slot;
+
+        if ((this.size + 1) * 2 > this.keys.length) this.rehash(this.keys.length * 2);
+
+        if (this.freeCount > 0) {
+            slot = this.freeSlots[--this.freeCount];
+        } else {
+            slot = this.nextSlot++;
+            if (slot >= this.owners.length) this.owners = Arrays.copyOf(this.owners, this.owners.length * 2);
+        }
+
+        this.insert(playerId, slot);
+        this.owners[slot] = playerId;
+        this.size++;
+
+        return slot;
+    }
+
+    /**
+     * Removes the slot of the specified player.<br/>
+     * The slot will be reused for another player, so values stored for the slot have to be reset by the caller.
+     * @param playerId player
+     * @return the removed slot or -1 if the player had no slot
+     */
+    int remove(@NotNull UUID playerId) {
+        int mask = this.keys.length - 1;
+        int index = hash(playerId) & mask;
+
+        while (true) {
+            UUID key = this.keys[index];
+            if (key == null) return -1;
+            if (key.equals(playerId)) break;
+            index = (index + 1) & mask;
+        }
+
+        int slot = this.values[index];
+
+        // Backward shift deletion to keep the probe sequences intact
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (this.keys[next] != null) {
+            int ideal = hash(this.keys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                this.keys[hole] = this.keys[next];
+                this.values[hole] = this.values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.keys[hole] = null;
+
+        this.owners[slot] = null;
+        if (this.freeCount == this.freeSlots.length) this.freeSlots = Arrays.copyOf(this.freeSlots, Math.max(this.freeSlots.length * 2, 4));
+        this.freeSlots[this.freeCount++] = slot;
+        this.size--;
+
+        return slot;
+    }
+
+    /**
+     * Returns the player of the specified slot.
+     * @param slot slot
+     * @return player or null if the slot is not assigned
+     */
+    @Nullable UUID getOwner(int slot) {
+        if (slot < 0 || slot >= this.nextSlot) return null;
+        return this.owners[slot];
+    }
+
+    /**
+     * Returns the upper bound of all assigned slots (exclusive).<br/>
+     * Primitive value arrays need at least this length.
+     * @return slot bound
+     */
+    int getSlotBound() {
+        return this.nextSlot;
+    }
+
+    /**
+     * Returns the amount of assigned slots.
+     * @return size
+     */
+    int size() {
+        return this.size;
+    }
+
+    // ----- INTERNAL -----
+
+    private void insert(@NotNull UUID playerId, int slot) {
+        int mask = this.keys.length - 1;
+        int index = hash(playerId) & mask;
+        while (this.keys[index] != null) index = (index + 1) & mask;
+        this.keys[index] = playerId;
+        this.values[index] = slot;
+    }
+
+    private void rehash(int capacity) {
+        UUID[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+
+        this.keys = new UUID[capacity];
+        this.values = new int[capacity];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) continue;
+            this.insert(oldKeys[i], oldValues[i]);
+        }
+
+    }
+
+    private static int hash(@NotNull UUID playerId) {
+        long bits = playerId.getMostSignificantBits() ^ playerId.getLeastSignificantBits();
+        bits ^= bits >>> 33;
+        bits *= 0xff51afd7ed558ccdL;
+        bits ^= bits >>> 33;
+        return (int) bits;
+    }
+
+}
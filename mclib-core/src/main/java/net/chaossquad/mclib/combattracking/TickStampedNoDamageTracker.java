@@ -0,0 +1,87 @@
+package net.chaossquad.mclib.combattracking;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Tracks the ticks a player has not taken damage.<br/>
+ * Unlike {@link NoDamageTracker}, this tracker stores the server tick of the last damage and calculates the no damage ticks when they are requested.
+ * It therefore does not need a task that runs every tick.<br/>
+ * You need to call {@link #onPlayerDamage(Player)} every time the player takes damage/dies and {@link #onPlayerQuit(Player)} when the player leaves.
+ * For players without recorded damage, the ticks lived of the player entity are returned.<br/>
+ * In contrast to {@link NoDamageTracker}, the ticks also continue counting while the player is dead.
+ * Since the tracked damage or death resets the value, this only matters for players that are dead for a long time.
+ */
+public class TickStampedNoDamageTracker {
+    @NotNull private final PlayerSlots players;
+    @NotNull private int[] lastDamageTicks;
+
+    /**
+     * Creates a new TickStampedNoDamageTracker.
+     */
+    public TickStampedNoDamageTracker() {
+        this.players = new PlayerSlots(16);
+        this.lastDamageTicks = new int[16];
+    }
+
+    // ----- EVENTS -----
+
+    /**
+     * The method that has to be called when the player takes damage or dies.
+     * @param player the player that took damage or died.
+     */
+    public synchronized void onPlayerDamage(@NotNull Player player) {
+        int slot = this.players.getOrAssign(player.getUniqueId());
+
+        if (slot >= this.lastDamageTicks.length) {
+            this.lastDamageTicks = Arrays.copyOf(this.lastDamageTicks, Math.max(this.lastDamageTicks.length * 2, slot + 1));
+        }
+
+        this.lastDamageTicks[slot] = Bukkit.getCurrentTick();
+    }
+
+    /**
+     * The method that has to be called when the player leaves the server.
+     * @param player the player that left
+     */
+    public synchronized void onPlayerQuit(@NotNull Player player) {
+        this.players.remove(player.getUniqueId());
+    }
+
+    // ----- GET INFO -----
+
+    /**
+     * Returns the amount of ticks the player did not take damage.
+     * @param player player
+     * @return no damage ticks
+     */
+    public int getNoDamageTicks(@NotNull Player player) {
+        if (player.isDead()) return 0;
+
+        int lastDamageTick;
+
+        synchronized (this) {
+            int slot = this.players.get(player.getUniqueId());
+            if (slot < 0) return Math.max(player.getTicksLived(), 0);
+            lastDamageTick = this.lastDamageTicks[slot];
+        }
+
+        return Math.max(Bukkit.getCurrentTick() - lastDamageTick, 0);
+    }
+
+    /**
+     * Returns the server tick at which the player took damage the last time.
+     * @param playerId player uuid
+     * @return last damage tick or -1 if no damage has been recorded
+     */
+    public synchronized int getLastDamageTick(@NotNull UUID playerId) {
+        int slot = this.players.get(playerId);
+        if (slot < 0) return -1;
+        return this.lastDamageTicks[slot];
+    }
+
+}
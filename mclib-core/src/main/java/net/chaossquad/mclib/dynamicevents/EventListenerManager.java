@@ -1,14 +1,26 @@
 package net.chaossquad.mclib.dynamicevents;
 
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.RegisteredListener;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * Dynamically manages event listeners.<br/>
@@ -16,13 +28,31 @@ import java.util.List;
  * The ListenerManager then keeps the listeners registered as long as the ListenerOwner provides them.<br/>
  * If not, they are unregistered.<br/>
  * Listeners which should not be managed by this manager has to be excepted. If not, they will be unregistered as well.
- * Listeners of other plugins are automatically excepted.
+ * Listeners of other plugins are automatically excepted.<br/>
+ * Listeners registered by this manager are tracked in an identity-based registry, so adding listeners does not need to read Bukkit's handler lists.
+ * The registry is only updated when this manager registers or unregisters listeners, and when {@link #resync()} finds owned listeners which are already registered.<br/>
+ * {@link #manageListeners()} is driven by changes: it only registers the listeners of owners which have become available,
+ * unregisters the listeners of owners which are no longer available and applies the listener changes queued by the owners
+ * ({@link #queueListenerAdded(ListenerOwner, Listener)} and {@link #queueListenersRemoved(Collection)}).
+ * Its cost therefore scales with the amount of owners and changes, not with the amount of listeners.
+ * Owners can also report single listener changes using {@link #notifyListenerAdded(ListenerOwner, Listener)} and {@link #notifyListenerRemoved(Listener)},
+ * which registers or unregisters exactly that listener immediately.
+ * Owners which change their listeners without reporting it are only reconciled by the full {@link #resync()}.<br/>
+ * For finding expensive listeners, the timings mode ({@link #setTimingsEnabled(boolean)}) records execution times per listener, event type and owner.<br/>
+ * Sources, excepted and registered listeners are stored as immutable snapshots which are replaced on every change.
+ * Reading them (for example {@link #isRegistered(Listener)} from async event handlers) never locks or copies.
  */
 public final class EventListenerManager {
     @NotNull private final Plugin plugin;
-    @NotNull private final List<ListenerOwnerSource> sources;
-    @NotNull private final List<ExtendedListenerOwnerSource> extendedSources;
-    @NotNull private final List<Listener> exceptedListeners;
+    @NotNull private final Object lock;
+    @NotNull private volatile ListenerOwnerSource[] sources;
+    @NotNull private volatile ExtendedListenerOwnerSource[] extendedSources;
+    @NotNull private volatile ListenerSet exceptedListeners;
+    @NotNull private volatile ListenerSet registeredListeners;
+    @NotNull private volatile Set<ListenerOwner> availableOwners;
+    @NotNull private final Queue<ListenerChange> pendingChanges;
+    @NotNull private final Map<Listener, ListenerTimings> timings;
+    private volatile boolean timingsEnabled;
 
     /**
      * Creates a new EventListenerManager.
@@ -30,19 +60,74 @@ public final class EventListenerManager {
      */
     public EventListenerManager(@NotNull Plugin plugin) {
         this.plugin = plugin;
-        this.sources = Collections.synchronizedList(new ArrayList<>());
-        this.extendedSources = Collections.synchronizedList(new ArrayList<>());
-        this.exceptedListeners = Collections.synchronizedList(new ArrayList<>());
+        this.lock = new Object();
+        this.sources = new ListenerOwnerSource[0];
+        this.extendedSources = new ExtendedListenerOwnerSource[0];
+        this.exceptedListeners = ListenerSet.EMPTY;
+        this.registeredListeners = ListenerSet.EMPTY;
+        this.availableOwners = Set.of();
+        this.pendingChanges = new ConcurrentLinkedQueue<>();
+        this.timings = Collections.synchronizedMap(new IdentityHashMap<>());
+        this.timingsEnabled = false;
     }
 
     // ----- LISTENER MANAGEMENT -----
 
     /**
-     * Run both the cleanup and the add task.
+     * Applies the changes since the last call.<br/>
+     * Listeners of owners which have become available are registered, listeners of owners which are no longer available are unregistered,
+     * and the queued listener changes are applied in the order they have been queued.
+     * This neither reads the listeners of unchanged owners nor Bukkit's handler lists.
+     * Use {@link #resync()} to reconcile all listeners.
      */
     public void manageListeners() {
-        this.cleanupListeners();
-        this.addListenersOfAll();
+        Set<ListenerOwner> previousOwners = this.availableOwners;
+        List<ListenerOwner> owners = this.getListenerOwners();
+        this.updateAvailableOwners(owners);
+        Set<ListenerOwner> currentOwners = this.availableOwners;
+
+        // Owners which are no longer available
+
+        Set<Listener> removedListeners = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ListenerOwner owner : previousOwners) {
+            if (currentOwners.contains(owner)) continue;
+            removedListeners.addAll(owner.getListeners());
+        }
+        this.notifyListenersRemoved(removedListeners);
+
+        // Owners which have become available
+
+        for (ListenerOwner owner : currentOwners) {
+            if (previousOwners.contains(owner)) continue;
+            this.addListenersOf(owner);
+        }
+
+        // Queued listener changes
+
+        ListenerChange change;
+        while ((change = this.pendingChanges.poll()) != null) {
+
+            if (change.owner() == null) {
+                this.notifyListenerRemoved(change.listener());
+                continue;
+            }
+
+            if (!currentOwners.contains(change.owner())) continue;
+            this.addListeners(List.of(change.listener()));
+        }
+
+    }
+
+    /**
+     * Reconciles all listeners with the listeners of all available owners.<br/>
+     * Registers all owned listeners which are not registered and unregisters all listeners of the plugin which are neither owned nor excepted.
+     * This reads the listeners of all owners and Bukkit's handler lists, so it should only be used when owners have changed their listeners without reporting it.
+     */
+    public void resync() {
+        this.pendingChanges.clear();
+        Set<Listener> ownedListeners = this.getOwnedListeners();
+        this.cleanupListeners(ownedListeners);
+        this.addListeners(ownedListeners);
     }
 
     // ----- LISTENER CLEANUP -----
@@ -52,31 +137,71 @@ public final class EventListenerManager {
      * It is used for removing game and map listeners of games/maps which are not loaded anymore.
      */
     public void cleanupListeners() {
+        this.cleanupListeners(this.getOwnedListeners());
+    }
+
+    /**
+     * Cleans up all listeners which are not contained in the specified set of owned listeners.
+     * Owned listeners which have been registered to Bukkit without this manager are added to the registry, so they are not registered twice.
+     * @param ownedListeners identity set of all listeners provided by the listener owners
+     */
+    private void cleanupListeners(@NotNull Set<Listener> ownedListeners) {
+        Set<Listener> removedListeners = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Listener> adoptedListeners = Collections.newSetFromMap(new IdentityHashMap<>());
+        ListenerSet registeredListeners = this.registeredListeners;
 
         for (Listener listener : this.getListeners()) {
             if (listener == null) continue;
-            this.cleanupListener(listener);
+
+            // We don't care about the plugin being a listener itself
+            if (listener == this.plugin) continue;
+
+            // We don't care about excepted listeners
+            if (this.isExcepted(listener)) continue;
+
+            // Keep the listener if it is owned
+            if (ownedListeners.contains(listener)) {
+                if (!registeredListeners.contains(listener)) adoptedListeners.add(listener);
+                continue;
+            }
+
+            removedListeners.add(listener);
         }
 
+        if (!adoptedListeners.isEmpty()) {
+            synchronized (this.lock) {
+                this.registeredListeners = this.registeredListeners.with(adoptedListeners);
+            }
+        }
+
+        this.unregisterListeners(removedListeners);
     }
 
     /**
-     * This method cleans up the specified listener if it has to be cleaned up.
-     * @param listener listener
+     * Unregisters all specified listeners from Bukkit in a single pass over all handler lists.<br/>
+     * This is a lot faster than calling {@link HandlerList#unregisterAll(Listener)} for every listener,
+     * which walks all handler lists of the server for each listener.
+     * @param listeners identity set of listeners to unregister
      */
-    private void cleanupListener(@NotNull Listener listener) {
-
-        // We don't care about the plugin being a listener itself
-        if (listener == this.plugin) return;
-
-        // We don't care about excepted listeners
-        for (Listener l : List.copyOf(this.exceptedListeners)) if (l == listener) return;
+    private void unregisterListeners(@NotNull Set<Listener> listeners) {
+        if (listeners.isEmpty()) return;
+
+        for (HandlerList handlerList : HandlerList.getHandlerLists()) {
+            for (RegisteredListener registeredListener : handlerList.getRegisteredListeners()) {
+                if (registeredListener.getPlugin() != this.plugin) continue;
+                if (!listeners.contains(registeredListener.getListener())) continue;
+                handlerList.unregister(registeredListener);
+            }
+        }
 
-        // Return if listener is registered
-        for (ListenerOwner owner : this.getListenerOwners()) if (this.containsExactly(owner.getListeners(), listener)) return;
+        synchronized (this.lock) {
+            this.registeredListeners = this.registeredListeners.without(listeners::contains);
+        }
 
-        HandlerList.unregisterAll(listener);
-        this.plugin.getLogger().fine("Removed listener " + listener);
+        for (Listener listener : listeners) {
+            this.timings.remove(listener);
+            this.plugin.getLogger().fine("Removed listener " + listener);
+        }
 
     }
 
@@ -86,9 +211,13 @@ public final class EventListenerManager {
      * This method checks of any listener of any listener owner has to be added.
      */
     public void addListenersOfAll() {
-        for (ListenerOwner owner : this.getListenerOwners()) {
+        List<ListenerOwner> owners = this.getListenerOwners();
+        this.updateAvailableOwners(owners);
+
+        for (ListenerOwner owner : owners) {
             this.addListenersOf(owner);
         }
+
     }
 
     /**
@@ -96,15 +225,286 @@ public final class EventListenerManager {
      * @param owner owner
      */
     public void addListenersOf(@NotNull ListenerOwner owner) {
-        List<Listener> listeners = this.getListeners();
+        this.addListeners(owner.getListeners());
+    }
+
+    /**
+     * Registers all specified listeners which are not already registered and not excepted.
+     * @param listeners listeners
+     */
+    private void addListeners(@NotNull Collection<Listener> listeners) {
+        Set<Listener> addedListeners = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        synchronized (this.lock) {
+            ListenerSet exceptedListeners = this.exceptedListeners;
+            ListenerSet registeredListeners = this.registeredListeners;
+
+            for (Listener listener : listeners) {
+                if (listener == null) continue;
+                if (exceptedListeners.contains(listener)) continue;
+                if (registeredListeners.contains(listener)) continue;
+                addedListeners.add(listener);
+            }
 
-        for (Listener listener : List.copyOf(owner.getListeners())) {
-            if (this.containsExactly(List.copyOf(this.exceptedListeners), listener)) continue;
-            if (this.containsExactly(listeners, listener)) continue;
+            if (addedListeners.isEmpty()) return;
+            this.registeredListeners = registeredListeners.with(addedListeners);
+        }
+
+        for (Listener listener : addedListeners) {
             this.plugin.getServer().getPluginManager().registerEvents(listener, this.plugin);
             this.plugin.getLogger().fine("Added listener " + listener);
         }
 
+        if (this.timingsEnabled) this.instrumentListeners(addedListeners::contains);
+    }
+
+    // ----- LISTENER CHANGE NOTIFICATIONS -----
+
+    /**
+     * Queues a listener which has been added to the specified owner.<br/>
+     * The listener is registered by the next {@link #manageListeners()} call if the owner is available then.
+     * If the owner becomes available later, the listener is registered together with all other listeners of the owner.<br/>
+     * Can be called from any thread.
+     * @param owner owner the listener has been added to
+     * @param listener listener
+     */
+    public void queueListenerAdded(@NotNull ListenerOwner owner, @NotNull Listener listener) {
+        this.pendingChanges.add(new ListenerChange(owner, listener));
+    }
+
+    /**
+     * Queues listeners which have been removed from their owners.<br/>
+     * The listeners are unregistered by the next {@link #manageListeners()} call.<br/>
+     * Can be called from any thread.
+     * @param listeners listeners
+     */
+    public void queueListenersRemoved(@NotNull Collection<? extends Listener> listeners) {
+
+        for (Listener listener : listeners) {
+            if (listener == null) continue;
+            this.pendingChanges.add(new ListenerChange(null, listener));
+        }
+
+    }
+
+    /**
+     * Notifies the manager that a listener has been added to the specified owner.<br/>
+     * If the owner is currently provided by a source, only that listener is registered, without reconciling all other listeners.
+     * If the owner is not available, the listener will be registered by the next {@link #manageListeners()} call when the owner becomes available.<br/>
+     * The availability is checked against the owners found by the last {@link #manageListeners()} call,
+     * so the sources are only asked for owners which have not been seen yet.
+     * If the owner has not been seen yet, all of its listeners are registered, since {@link #manageListeners()} will not see it become available anymore.
+     * @param owner owner the listener has been added to
+     * @param listener listener
+     */
+    public void notifyListenerAdded(@NotNull ListenerOwner owner, @NotNull Listener listener) {
+
+        if (!this.availableOwners.contains(owner)) {
+            if (!this.isListenerOwnerAvailable(owner)) return;
+
+            synchronized (this.lock) {
+                Set<ListenerOwner> owners = Collections.newSetFromMap(new IdentityHashMap<>());
+                owners.addAll(this.availableOwners);
+                owners.add(owner);
+                this.availableOwners = Collections.unmodifiableSet(owners);
+            }
+
+            this.addListenersOf(owner);
+        }
+
+        this.addListeners(List.of(listener));
+    }
+
+    /**
+     * Notifies the manager that a listener has been removed from its owner.<br/>
+     * Only that listener is unregistered, without reconciling all other listeners.
+     * If the same listener is also provided by another owner, it will be registered again by the next {@link #resync()} call.
+     * @param listener listener
+     */
+    public void notifyListenerRemoved(@NotNull Listener listener) {
+        this.notifyListenersRemoved(List.of(listener));
+    }
+
+    /**
+     * Notifies the manager that multiple listeners have been removed from their owners.<br/>
+     * All of them are unregistered in a single pass over Bukkit's handler lists.
+     * If one of the listeners is also provided by another owner, it will be registered again by the next {@link #resync()} call.
+     * @param listeners listeners
+     */
+    public void notifyListenersRemoved(@NotNull Collection<? extends Listener> listeners) {
+        Set<Listener> removedListeners = Collections.newSetFromMap(new IdentityHashMap<>());
+        ListenerSet registeredListeners = this.registeredListeners;
+
+        for (Listener listener : listeners) {
+            if (listener == null) continue;
+            if (listener == this.plugin) continue;
+            if (this.isExcepted(listener)) continue;
+            if (!registeredListeners.contains(listener)) continue;
+            removedListeners.add(listener);
+        }
+
+        this.unregisterListeners(removedListeners);
+    }
+
+    /**
+     * Unregisters all listeners of the specified owner in a single pass over Bukkit's handler lists.<br/>
+     * Use this when an owner (like a game) ends, instead of waiting for the next {@link #manageListeners()} call.
+     * Listeners which are still provided by an available owner will be registered again by the next {@link #resync()} call.
+     * @param owner owner
+     */
+    public void unregisterListenersOf(@NotNull ListenerOwner owner) {
+
+        if (this.availableOwners.contains(owner)) {
+            synchronized (this.lock) {
+                Set<ListenerOwner> owners = Collections.newSetFromMap(new IdentityHashMap<>());
+                owners.addAll(this.availableOwners);
+                owners.remove(owner);
+                this.availableOwners = Collections.unmodifiableSet(owners);
+            }
+        }
+
+        this.notifyListenersRemoved(owner.getListeners());
+    }
+
+    // ----- TIMINGS -----
+
+    /**
+     * Enables or disables the timings mode.<br/>
+     * When enabled, the handlers of all listeners registered by this manager are wrapped to record call counts and execution time histograms
+     * per listener and per event type. They can be queried per listener using {@link #getTimings(Listener)}
+     * or aggregated per owner using {@link #getTimings(ListenerOwner)}.<br/>
+     * Disabling the timings mode restores the original handlers and discards all recorded timings.
+     * Timings of a listener are also discarded when the listener is unregistered.
+     * Wrapping and unwrapping keeps the order of all handlers within their priority.
+     * @param enabled enabled
+     */
+    public void setTimingsEnabled(boolean enabled) {
+        if (this.timingsEnabled == enabled) return;
+        this.timingsEnabled = enabled;
+
+        if (enabled) {
+            this.instrumentListeners(this.registeredListeners::contains);
+        } else {
+            this.removeInstrumentation();
+            this.timings.clear();
+        }
+
+    }
+
+    /**
+     * Returns true if the timings mode is enabled.
+     * @return timings enabled
+     */
+    public boolean isTimingsEnabled() {
+        return this.timingsEnabled;
+    }
+
+    /**
+     * Returns the timings of the specified listener.
+     * @param listener listener
+     * @return timings or null if the listener has no timings
+     */
+    public @Nullable ListenerTimings getTimings(@NotNull Listener listener) {
+        return this.timings.get(listener);
+    }
+
+    /**
+     * Returns the aggregated timings of all listeners currently provided by the specified owner.
+     * @param owner owner
+     * @return aggregated timings
+     */
+    public @NotNull ListenerTimings getTimings(@NotNull ListenerOwner owner) {
+        ListenerTimings ownerTimings = new ListenerTimings();
+
+        for (Listener listener : owner.getListeners()) {
+            ListenerTimings listenerTimings = this.timings.get(listener);
+            if (listenerTimings == null) continue;
+            ownerTimings.add(listenerTimings);
+        }
+
+        return ownerTimings;
+    }
+
+    /**
+     * Returns the timings of all listeners.
+     * @return map of listeners and timings
+     */
+    public @NotNull Map<Listener, ListenerTimings> getAllTimings() {
+        synchronized (this.timings) {
+            return new IdentityHashMap<>(this.timings);
+        }
+    }
+
+    /**
+     * Wraps all not yet wrapped handlers of this plugin which belong to listeners accepted by the filter.
+     * @param filter listener filter
+     */
+    private void instrumentListeners(@NotNull Predicate<Listener> filter) {
+
+        for (HandlerList handlerList : HandlerList.getHandlerLists()) {
+            replaceHandlers(handlerList, registeredListener -> {
+                if (registeredListener instanceof TimingRegisteredListener) return registeredListener;
+                if (registeredListener.getPlugin() != this.plugin) return registeredListener;
+                if (!filter.test(registeredListener.getListener())) return registeredListener;
+
+                ListenerTimings listenerTimings = this.timings.computeIfAbsent(registeredListener.getListener(), listener -> new ListenerTimings());
+                return new TimingRegisteredListener(registeredListener, listenerTimings);
+            });
+        }
+
+    }
+
+    /**
+     * Replaces all wrapped handlers with their original handlers.
+     */
+    private void removeInstrumentation() {
+
+        for (HandlerList handlerList : HandlerList.getHandlerLists()) {
+            replaceHandlers(handlerList, registeredListener -> {
+                if (!(registeredListener instanceof TimingRegisteredListener timingListener)) return registeredListener;
+                if (timingListener.getPlugin() != this.plugin) return registeredListener;
+                return timingListener.getDelegate();
+            });
+        }
+
+    }
+
+    /**
+     * Replaces handlers of a handler list without changing the order of the handlers within their priority.<br/>
+     * {@link HandlerList#register(RegisteredListener)} appends to the end of a priority,
+     * so all handlers of a priority from the first replaced handler onward are unregistered and registered again in their original order.
+     * @param handlerList handler list
+     * @param replacement returns the replacement of a handler or the handler itself to keep it
+     */
+    private static void replaceHandlers(@NotNull HandlerList handlerList, @NotNull UnaryOperator<RegisteredListener> replacement) {
+        List<RegisteredListener> removedHandlers = new ArrayList<>();
+        List<RegisteredListener> addedHandlers = new ArrayList<>();
+        EventPriority priority = null;
+        boolean replacing = false;
+
+        // The handlers are sorted by priority
+        for (RegisteredListener handler : handlerList.getRegisteredListeners()) {
+
+            if (handler.getPriority() != priority) {
+                priority = handler.getPriority();
+                replacing = false;
+            }
+
+            RegisteredListener replacedHandler = replacement.apply(handler);
+            if (replacedHandler != handler) replacing = true;
+            if (!replacing) continue;
+
+            removedHandlers.add(handler);
+            addedHandlers.add(replacedHandler);
+        }
+
+        if (removedHandlers.isEmpty()) return;
+
+        for (RegisteredListener handler : removedHandlers) {
+            handlerList.unregister(handler);
+        }
+
+        handlerList.registerAll(addedHandlers);
     }
 
     // ----- LISTS -----
@@ -114,7 +514,9 @@ public final class EventListenerManager {
      * @param source source to add
      */
     public void addSource(@NotNull ListenerOwnerSource source) {
-        this.sources.add(source);
+        synchronized (this.lock) {
+            this.sources = append(this.sources, source);
+        }
     }
 
     /**
@@ -122,7 +524,9 @@ public final class EventListenerManager {
      * @param source source to add
      */
     public void addExtendedSource(@NotNull ExtendedListenerOwnerSource source) {
-        this.extendedSources.add(source);
+        synchronized (this.lock) {
+            this.extendedSources = append(this.extendedSources, source);
+        }
     }
 
     /**
@@ -130,7 +534,9 @@ public final class EventListenerManager {
      * @param source source to remove
      */
     public void removeSource(ListenerOwnerSource source) {
-        this.sources.remove(source);
+        synchronized (this.lock) {
+            this.sources = removeFirst(this.sources, source);
+        }
     }
 
     /**
@@ -138,7 +544,9 @@ public final class EventListenerManager {
      * @param source source to remove
      */
     public void removeExtendedSource(@NotNull ExtendedListenerOwnerSource source) {
-        this.extendedSources.remove(source);
+        synchronized (this.lock) {
+            this.extendedSources = removeFirst(this.extendedSources, source);
+        }
     }
 
     /**
@@ -147,7 +555,7 @@ public final class EventListenerManager {
      */
     @NotNull
     public List<ListenerOwnerSource> getSources() {
-        return List.copyOf(this.sources);
+        return Collections.unmodifiableList(Arrays.asList(this.sources));
     }
 
     /**
@@ -155,7 +563,7 @@ public final class EventListenerManager {
      * @return list of sources
      */
     public @NotNull List<ExtendedListenerOwnerSource> getExtendedSources() {
-        return List.copyOf(this.extendedSources);
+        return Collections.unmodifiableList(Arrays.asList(this.extendedSources));
     }
 
     /**
@@ -163,8 +571,9 @@ public final class EventListenerManager {
      * @param exceptedListener listener to except
      */
     public void addExceptedListener(@NotNull Listener exceptedListener) {
-        if (this.containsExactly(this.exceptedListeners, exceptedListener)) return;
-        this.exceptedListeners.add(exceptedListener);
+        synchronized (this.lock) {
+            this.exceptedListeners = this.exceptedListeners.with(List.of(exceptedListener));
+        }
     }
 
     /**
@@ -172,7 +581,9 @@ public final class EventListenerManager {
      * @param exceptedListener listener to no longer except
      */
     public void removeExceptedListener(Listener exceptedListener) {
-        this.exceptedListeners.remove(exceptedListener);
+        synchronized (this.lock) {
+            this.exceptedListeners = this.exceptedListeners.without(listener -> listener == exceptedListener);
+        }
     }
 
     /**
@@ -181,30 +592,82 @@ public final class EventListenerManager {
      */
     @NotNull
     public List<Listener> getExceptedListeners() {
-        return List.copyOf(this.exceptedListeners);
+        return this.exceptedListeners.asList();
     }
 
     // ----- OTHER -----
 
     /**
      * Get a list of all listeners (not registered listeners).
-     * This can be used to clear listeners of the game.
+     * This can be used to clear listeners of the game.<br/>
+     * This reads the listeners of the plugin from Bukkit's handler lists, including listeners which are not managed by this manager.
+     * Use {@link #getRegisteredListeners()} for the listeners managed by this manager.
      * @return List of listeners
      */
     @NotNull
     public List<Listener> getListeners() {
-        List<RegisteredListener> registeredListenerList = List.copyOf(HandlerList.getRegisteredListeners(this.plugin));
-        List<Listener> listenerList = new ArrayList<>();
+        Set<Listener> listeners = Collections.newSetFromMap(new IdentityHashMap<>());
 
-        for (RegisteredListener registeredListener : registeredListenerList) {
+        for (RegisteredListener registeredListener : HandlerList.getRegisteredListeners(this.plugin)) {
+            listeners.add(registeredListener.getListener());
+        }
 
-            if (!listenerList.contains(registeredListener.getListener())) {
-                listenerList.add(registeredListener.getListener());
-            }
+        return new ArrayList<>(listeners);
+    }
+
+    /**
+     * Returns true if the specified listener is registered by this manager.<br/>
+     * Listeners of the plugin which have been registered without this manager are not included.
+     * This uses the registry of registered listeners and does not access Bukkit's handler lists.
+     * It can be called from any thread without locking or allocating.
+     * @param listener listener
+     * @return true if registered
+     */
+    public boolean isRegistered(@NotNull Listener listener) {
+        return this.registeredListeners.contains(listener);
+    }
+
+    /**
+     * Returns a list of all listeners registered by this manager.<br/>
+     * Listeners of the plugin which have been registered without this manager are not included.
+     * This uses the registry of registered listeners and does not access Bukkit's handler lists.
+     * The returned list is an unmodifiable view of the current snapshot and can be read from any thread.
+     * @return list of registered listeners
+     */
+    @NotNull
+    public List<Listener> getRegisteredListeners() {
+        return this.registeredListeners.asList();
+    }
+
+    /**
+     * Returns an identity set of all listeners of all currently available listener owners.
+     * @return owned listeners
+     */
+    @NotNull
+    private Set<Listener> getOwnedListeners() {
+        Set<Listener> listeners = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<ListenerOwner> owners = this.getListenerOwners();
+        this.updateAvailableOwners(owners);
+
+        for (ListenerOwner owner : owners) {
+            listeners.addAll(owner.getListeners());
+        }
+
+        return listeners;
+    }
 
+    /**
+     * Replaces the snapshot of available owners used by {@link #notifyListenerAdded(ListenerOwner, Listener)}.
+     * @param owners currently available owners
+     */
+    private void updateAvailableOwners(@NotNull List<ListenerOwner> owners) {
+        Set<ListenerOwner> availableOwners = Collections.newSetFromMap(new IdentityHashMap<>());
+        availableOwners.addAll(owners);
+
+        synchronized (this.lock) {
+            this.availableOwners = Collections.unmodifiableSet(availableOwners);
         }
 
-        return listenerList;
     }
 
     /**
@@ -215,13 +678,13 @@ public final class EventListenerManager {
     public List<ListenerOwner> getListenerOwners() {
         List<ListenerOwner> listenerOwners = new ArrayList<>();
 
-        for (ListenerOwnerSource source : List.copyOf(this.sources)) {
+        for (ListenerOwnerSource source : this.sources) {
             ListenerOwner owner = source.get();
             if (owner == null) continue;
             listenerOwners.add(owner);
         }
 
-        for (ExtendedListenerOwnerSource source : List.copyOf(this.extendedSources)) {
+        for (ExtendedListenerOwnerSource source : this.extendedSources) {
             List<ListenerOwner> owners = source.get();
             listenerOwners.addAll(owners);
         }
@@ -229,11 +692,54 @@ public final class EventListenerManager {
         return listenerOwners;
     }
 
-    private boolean containsExactly(List<Listener> list, Listener object) {
-        for (Listener o : List.copyOf(list)) if (o == object) return true;
+    /**
+     * Returns true if the specified owner is currently provided by any source.
+     * @param owner owner
+     * @return true if available
+     */
+    public boolean isListenerOwnerAvailable(@NotNull ListenerOwner owner) {
+
+        for (ListenerOwnerSource source : this.sources) {
+            if (source.get() == owner) return true;
+        }
+
+        for (ExtendedListenerOwnerSource source : this.extendedSources) {
+            for (ListenerOwner o : source.get()) if (o == owner) return true;
+        }
+
         return false;
     }
 
+    private boolean isExcepted(@NotNull Listener listener) {
+        return this.exceptedListeners.contains(listener);
+    }
+
+    private static <T> T[] append(T[] array, T element) {
+        T[] copy = Arrays.copyOf(array, array.length + 1);
+        copy[array.length] = element;
+        return copy;
+    }
+
+    private static <T> T[] removeFirst(T[] array, Object element) {
+
+        for (int i = 0; i < array.length; i++) {
+            if (!Objects.equals(array[i], element)) continue;
+
+            T[] copy = Arrays.copyOf(array, array.length - 1);
+            System.arraycopy(array, i + 1, copy, i, array.length - i - 1);
+            return copy;
+        }
+
+        return array;
+    }
+
+    /**
+     * A queued listener change.
+     * @param owner owner the listener has been added to (null if the listener has been removed)
+     * @param listener listener
+     */
+    private record ListenerChange(@Nullable ListenerOwner owner, @NotNull Listener listener) {}
+
     /**
      * Returns the plugin
      * @return plugin
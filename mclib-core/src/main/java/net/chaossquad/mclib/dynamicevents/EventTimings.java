@@ -0,0 +1,122 @@
+package net.chaossquad.mclib.dynamicevents;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Call count and execution time histogram of event handler calls.<br/>
+ * The histogram uses power of two buckets: bucket <code>i</code> counts calls which took less than <code>2^i</code> microseconds
+ * (and at least <code>2^(i-1)</code> microseconds), the last bucket counts all longer calls.<br/>
+ * Calls can be recorded from any thread.
+ */
+public final class EventTimings {
+
+    /**
+     * Amount of histogram buckets.
+     */
+    public static final int HISTOGRAM_BUCKETS = 24;
+
+    private final AtomicLong calls;
+    private final AtomicLong totalDuration;
+    private final AtomicLong maxDuration;
+    private final AtomicLongArray histogram;
+
+    /**
+     * Creates empty event timings.
+     */
+    public EventTimings() {
+        this.calls = new AtomicLong();
+        this.totalDuration = new AtomicLong();
+        this.maxDuration = new AtomicLong();
+        this.histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+    }
+
+    // ----- RECORD -----
+
+    /**
+     * Records a call.
+     * @param duration duration of the call in nanoseconds
+     */
+    public void record(long duration) {
+        this.calls.incrementAndGet();
+        this.totalDuration.addAndGet(duration);
+        this.maxDuration.accumulateAndGet(duration, Math::max);
+        this.histogram.incrementAndGet(getBucket(duration));
+    }
+
+    /**
+     * Adds all values of the specified timings to these timings.
+     * @param timings timings to add
+     */
+    void add(EventTimings timings) {
+        this.calls.addAndGet(timings.getCalls());
+        this.totalDuration.addAndGet(timings.getTotalDuration());
+        this.maxDuration.accumulateAndGet(timings.getMaxDuration(), Math::max);
+
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            this.histogram.addAndGet(i, timings.histogram.get(i));
+        }
+
+    }
+
+    /**
+     * Returns the histogram bucket of the specified duration.
+     * @param duration duration in nanoseconds
+     * @return bucket
+     */
+    private static int getBucket(long duration) {
+        long micros = Math.max(duration / 1000, 0);
+        return Math.min(64 - Long.numberOfLeadingZeros(micros), HISTOGRAM_BUCKETS - 1);
+    }
+
+    // ----- GETTER -----
+
+    /**
+     * Returns the amount of recorded calls.
+     * @return calls
+     */
+    public long getCalls() {
+        return this.calls.get();
+    }
+
+    /**
+     * Returns the total duration of all recorded calls.
+     * @return total duration in nanoseconds
+     */
+    public long getTotalDuration() {
+        return this.totalDuration.get();
+    }
+
+    /**
+     * Returns the longest recorded call.
+     * @return max duration in nanoseconds
+     */
+    public long getMaxDuration() {
+        return this.maxDuration.get();
+    }
+
+    /**
+     * Returns the average duration of the recorded calls.
+     * @return average duration in nanoseconds
+     */
+    public double getAverageDuration() {
+        long calls = this.getCalls();
+        if (calls <= 0) return 0;
+        return (double) this.getTotalDuration() / calls;
+    }
+
+    /**
+     * Returns a copy of the histogram.
+     * @return histogram (see class description)
+     */
+    public long[] getHistogram() {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            histogram[i] = this.histogram.get(i);
+        }
+
+        return histogram;
+    }
+
+}
@@ -0,0 +1,167 @@
+package net.chaossquad.mclib.dynamicevents;
+
+import org.bukkit.event.Listener;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * An immutable identity-based set of listeners.<br/>
+ * Changes create a new set, so a published instance can be read from any thread without locking or copying.
+ * Lookups use an open-addressed hash table over {@link System#identityHashCode(Object)} and do not allocate.
+ */
+final class ListenerSet implements Iterable<Listener> {
+
+    /**
+     * An empty set.
+     */
+    static final ListenerSet EMPTY = new ListenerSet(new Listener[0]);
+
+    @NotNull private final Listener[] listeners;
+    @NotNull private final Listener[] table;
+
+    /**
+     * Creates a new ListenerSet.
+     * @param listeners listeners (not null and distinct by identity, the array must not be modified afterwards)
+     */
+    private ListenerSet(@NotNull Listener[] listeners) {
+        this.listeners = listeners;
+
+        int capacity = 2;
+        while (capacity < listeners.length * 2) capacity <<= 1;
+        this.table = new Listener[capacity];
+
+        for (Listener listener : listeners) {
+            int index = indexOf(listener, this.table.length);
+            while (this.table[index] != null) index = (index + 1) & (this.table.length - 1);
+            this.table[index] = listener;
+        }
+
+    }
+
+    // ----- CREATE -----
+
+    /**
+     * Creates a set of the specified listeners.
+     * @param listeners listeners
+     * @return set
+     */
+    static @NotNull ListenerSet of(@NotNull Collection<? extends Listener> listeners) {
+        if (listeners.isEmpty()) return EMPTY;
+
+        Set<Listener> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Listener listener : listeners) {
+            if (listener == null) continue;
+            distinct.add(listener);
+        }
+
+        return new ListenerSet(distinct.toArray(new Listener[0]));
+    }
+
+    /**
+     * Returns a set containing the listeners of this set and the specified listeners.
+     * @param listeners listeners to add
+     * @return new set or this set if nothing has changed
+     */
+    @NotNull ListenerSet with(@NotNull Collection<? extends Listener> listeners) {
+        Set<Listener> added = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (Listener listener : listeners) {
+            if (listener == null || this.contains(listener)) continue;
+            added.add(listener);
+        }
+
+        if (added.isEmpty()) return this;
+
+        Listener[] array = Arrays.copyOf(this.listeners, this.listeners.length + added.size());
+        int i = this.listeners.length;
+        for (Listener listener : added) array[i++] = listener;
+
+        return new ListenerSet(array);
+    }
+
+    /**
+     * Returns a set containing the listeners of this set which are not accepted by the specified filter.
+     * @param filter filter of the listeners to remove
+     * @return new set or this set if nothing has changed
+     */
+    @NotNull ListenerSet without(@NotNull Predicate<Listener> filter) {
+        Listener[] array = new Listener[this.listeners.length];
+        int size = 0;
+
+        for (Listener listener : this.listeners) {
+            if (filter.test(listener)) continue;
+            array[size++] = listener;
+        }
+
+        if (size == this.listeners.length) return this;
+        if (size == 0) return EMPTY;
+        return new ListenerSet(Arrays.copyOf(array, size));
+    }
+
+    // ----- READ -----
+
+    /**
+     * Returns true if the set contains the specified listener (by identity).
+     * @param listener listener
+     * @return contains
+     */
+    boolean contains(Object listener) {
+        if (listener == null) return false;
+
+        int mask = this.table.length - 1;
+        int index = indexOf(listener, this.table.length);
+
+        while (true) {
+            Listener entry = this.table[index];
+            if (entry == null) return false;
+            if (entry == listener) return true;
+            index = (index + 1) & mask;
+        }
+
+    }
+
+    /**
+     * Returns the size of the set.
+     * @return size
+     */
+    int size() {
+        return this.listeners.length;
+    }
+
+    /**
+     * Returns true if the set is empty.
+     * @return empty
+     */
+    boolean isEmpty() {
+        return this.listeners.length == 0;
+    }
+
+    /**
+     * Returns an unmodifiable list view of this set.
+     * @return list
+     */
+    @NotNull List<Listener> asList() {
+        return Collections.unmodifiableList(Arrays.asList(this.listeners));
+    }
+
+    @Override
+    public @NotNull Iterator<Listener> iterator() {
+        return this.asList().iterator();
+    }
+
+    // ----- UTILITIES -----
+
+    private static int indexOf(Object listener, int capacity) {
+        int hash = System.identityHashCode(listener);
+        return (hash ^ (hash >>> 16)) & (capacity - 1);
+    }
+
+}
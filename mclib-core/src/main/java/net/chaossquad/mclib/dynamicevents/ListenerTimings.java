@@ -0,0 +1,63 @@
+package net.chaossquad.mclib.dynamicevents;
+
+import org.bukkit.event.Event;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Timings of a listener (or of all listeners of a {@link ListenerOwner}), in total and per event type.
+ */
+public final class ListenerTimings {
+    @NotNull private final EventTimings total;
+    @NotNull private final Map<Class<? extends Event>, EventTimings> events;
+
+    /**
+     * Creates empty listener timings.
+     */
+    public ListenerTimings() {
+        this.total = new EventTimings();
+        this.events = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Records a handler call.
+     * @param eventType type of the called event
+     * @param duration duration in nanoseconds
+     */
+    void record(@NotNull Class<? extends Event> eventType, long duration) {
+        this.total.record(duration);
+        this.events.computeIfAbsent(eventType, type -> new EventTimings()).record(duration);
+    }
+
+    /**
+     * Adds all values of the specified timings to these timings.
+     * @param timings timings to add
+     */
+    void add(@NotNull ListenerTimings timings) {
+        this.total.add(timings.total);
+
+        for (Map.Entry<Class<? extends Event>, EventTimings> entry : timings.events.entrySet()) {
+            this.events.computeIfAbsent(entry.getKey(), type -> new EventTimings()).add(entry.getValue());
+        }
+
+    }
+
+    /**
+     * Returns the timings of all handler calls.
+     * @return total timings
+     */
+    public @NotNull EventTimings getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Returns the timings per event type.
+     * @return map of event types and timings
+     */
+    public @NotNull Map<Class<? extends Event>, EventTimings> getEvents() {
+        return Map.copyOf(this.events);
+    }
+
+}
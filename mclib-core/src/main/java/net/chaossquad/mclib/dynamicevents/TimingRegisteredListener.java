@@ -0,0 +1,46 @@
+package net.chaossquad.mclib.dynamicevents;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.plugin.RegisteredListener;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link RegisteredListener} which wraps another registered listener and records the execution time of its calls.
+ */
+final class TimingRegisteredListener extends RegisteredListener {
+    @NotNull private final RegisteredListener delegate;
+    @NotNull private final ListenerTimings timings;
+
+    /**
+     * Wraps the specified registered listener.
+     * @param delegate registered listener
+     * @param timings timings the calls are recorded to
+     */
+    TimingRegisteredListener(@NotNull RegisteredListener delegate, @NotNull ListenerTimings timings) {
+        super(delegate.getListener(), (listener, event) -> delegate.callEvent(event), delegate.getPriority(), delegate.getPlugin(), delegate.isIgnoringCancelled());
+        this.delegate = delegate;
+        this.timings = timings;
+    }
+
+    @Override
+    public void callEvent(@NotNull Event event) throws EventException {
+        long startTime = System.nanoTime();
+
+        try {
+            this.delegate.callEvent(event);
+        } finally {
+            this.timings.record(event.getClass(), System.nanoTime() - startTime);
+        }
+
+    }
+
+    /**
+     * Returns the wrapped registered listener.
+     * @return registered listener
+     */
+    @NotNull RegisteredListener getDelegate() {
+        return this.delegate;
+    }
+
+}
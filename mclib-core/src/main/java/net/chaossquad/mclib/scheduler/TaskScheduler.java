@@ -63,6 +63,36 @@ public class TaskScheduler implements SchedulerInterface {
         return !hadException;
     }
 
+    /**
+     * Advances the scheduler tick without running any tasks.<br/>
+     * Tasks which become due in skipped ticks are run once in the next {@link #tick()},
+     * so delays and intervals keep counting game time when the scheduler is not ticked every tick.
+     * {@link ChildTaskScheduler}s which would have been ticked in this tick skip the tick as well.
+     */
+    public final void skipTick() {
+
+        synchronized (this.tasks) {
+
+            for (Map.Entry<Long, Task> entry : Map.copyOf(this.tasks).entrySet()) {
+                if (!(entry.getValue().getRunnable() instanceof ChildTaskScheduler child)) continue;
+
+                try {
+                    Task task = entry.getValue();
+                    if (entry.getKey() != task.getId() || task.getScheduler() != this || task.toBeRemoved() || !task.shouldRun()) continue;
+
+                    task.onRun();
+                    child.skipTick();
+                } catch (Exception e) {
+                    this.logger.log(Level.WARNING, "Exception while skipping tick of child scheduler task (id=" + entry.getKey() + ")", e);
+                }
+
+            }
+
+        }
+
+        this.tick++;
+    }
+
     /**
      * Handles one specific task.
      * @param taskId task id
@@ -2,19 +2,28 @@ package net.chaossquad.mclib.world;
 
 import net.chaossquad.mclib.MiscUtils;
 import net.chaossquad.mclib.WorldUtils;
+import net.chaossquad.mclib.blocks.BlockBox;
+import org.bukkit.Chunk;
 import org.bukkit.World;
 import org.bukkit.WorldCreator;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 /**
@@ -32,6 +41,10 @@ import java.util.logging.Level;
  * You need to have a template world directory inside your server folder (like a normal world on the server).
  * Then you can create a new dynamic world of that template using {@link #createWorldFromTemplate(String)}.
  * The template world is then copied and loaded.
+ * If only a part of the template is used, {@link #createWorldFromTemplate(String, BlockBox)} only copies the region files overlapping that area.
+ * The play area can then be loaded asynchronously using {@link #preloadArea(World, BlockBox)} before players join.
+ * When many worlds are created at once, use {@link #createWorldFromTemplateAsync(String, BlockBox)} together with {@link #setMaxConcurrentCreations(int)}
+ * to copy the templates off the main thread without saturating the disk.
  * Dynamic worlds are automatically deleted when they are no longer required.
  * </p>
  *
@@ -48,10 +61,16 @@ public class DynamicWorldLoadingSystem implements Runnable {
 
     private static final String PREFIX = "dynamicworlds-";
     private static final String UID_FILE_NAME = "uid.dat";
+    private static final List<String> REGION_DIRECTORY_NAMES = List.of("region", "entities", "poi");
 
     private final Plugin plugin;
     private final BukkitTask task;
     private final AtomicInteger nextId;
+    private final DynamicWorldMetrics metrics;
+    private final Queue<PendingCreation> creationQueue;
+    private final Set<String> creatingDirectories;
+    private int activeCreations;
+    private int maxConcurrentCreations;
 
     /**
      * Creates a new dynamic world loading system.
@@ -61,6 +80,11 @@ public class DynamicWorldLoadingSystem implements Runnable {
         this.plugin = plugin;
         this.task = this.plugin.getServer().getScheduler().runTaskTimer(this.plugin, this, 1, 10*20);
         this.nextId = new AtomicInteger(1);
+        this.metrics = new DynamicWorldMetrics();
+        this.creationQueue = new ArrayDeque<>();
+        this.creatingDirectories = ConcurrentHashMap.newKeySet();
+        this.activeCreations = 0;
+        this.maxConcurrentCreations = 0;
 
         this.unloadAndDeleteAllDynamicWorlds();
     }
@@ -80,7 +104,141 @@ public class DynamicWorldLoadingSystem implements Runnable {
      * @return loaded world or null if the world was not loaded
      */
     public World createWorldFromTemplate(String name) {
+        return this.createWorldFromTemplate(name, null);
+    }
+
+    /**
+     * Creates a copy of a world and loads it.<br/>
+     * If an area is specified, only the region, entity and poi files (<code>r.X.Z.mca</code>) overlapping that area are copied.
+     * Chunks outside the area will be generated by the world generator when they are loaded.
+     * All other files of the template are always copied.
+     * @param name world directory name
+     * @param area area that should be copied (null to copy the full world)
+     * @return loaded world or null if the world was not loaded
+     */
+    public World createWorldFromTemplate(String name, @Nullable BlockBox area) {
         if (this.isRemoved()) return null;
+
+        String directoryName = this.copyTemplate(name, area);
+        if (directoryName == null) {
+            this.metrics.recordFailedCreation();
+            return null;
+        }
+
+        try {
+            return this.loadDynamicWorld(directoryName);
+        } finally {
+            this.creatingDirectories.remove(directoryName);
+        }
+
+    }
+
+    /**
+     * Creates a copy of a world asynchronously and loads it on the main thread.<br/>
+     * The amount of world creations running at the same time is limited by {@link #getMaxConcurrentCreations()}.
+     * Creations exceeding that limit are queued and started in the order they have been requested.
+     * @param name world directory name
+     * @param area area that should be copied (null to copy the full world), see {@link #createWorldFromTemplate(String, BlockBox)}
+     * @return future which is completed with the loaded world or null if the world was not loaded
+     */
+    public CompletableFuture<World> createWorldFromTemplateAsync(String name, @Nullable BlockBox area) {
+        CompletableFuture<World> future = new CompletableFuture<>();
+        if (this.isRemoved()) {
+            future.complete(null);
+            return future;
+        }
+
+        synchronized (this.creationQueue) {
+            this.creationQueue.add(new PendingCreation(name, area, future));
+        }
+
+        this.startQueuedCreations();
+        return future;
+    }
+
+    /**
+     * Starts queued world creations until the concurrency limit is reached.
+     */
+    private void startQueuedCreations() {
+        List<PendingCreation> creations = new ArrayList<>();
+
+        synchronized (this.creationQueue) {
+            while (!this.creationQueue.isEmpty() && (this.maxConcurrentCreations <= 0 || this.activeCreations < this.maxConcurrentCreations)) {
+                creations.add(this.creationQueue.poll());
+                this.activeCreations++;
+            }
+        }
+
+        for (PendingCreation creation : creations) {
+            this.plugin.getServer().getScheduler().runTaskAsynchronously(this.plugin, () -> this.copyQueuedCreation(creation));
+        }
+
+    }
+
+    /**
+     * Copies the template of a queued world creation (async) and schedules the world load.
+     * @param creation creation
+     */
+    private void copyQueuedCreation(PendingCreation creation) {
+
+        String directoryName = null;
+        try {
+            directoryName = this.copyTemplate(creation.name(), creation.area());
+        } catch (Exception e) {
+            this.plugin.getLogger().log(Level.WARNING, "Failed to copy template world " + creation.name(), e);
+        }
+
+        if (directoryName == null || this.isRemoved() || !this.plugin.isEnabled()) {
+            if (directoryName != null) {
+                MiscUtils.deleteDirectory(this.getServerDirectory().resolve(directoryName));
+                this.creatingDirectories.remove(directoryName);
+            }
+            this.metrics.recordFailedCreation();
+            this.finishCreation(creation, null);
+            return;
+        }
+
+        String loadDirectoryName = directoryName;
+        this.plugin.getServer().getScheduler().runTask(this.plugin, () -> {
+
+            World world = null;
+            try {
+                if (!this.isRemoved()) world = this.loadDynamicWorld(loadDirectoryName);
+            } catch (Exception e) {
+                this.plugin.getLogger().log(Level.WARNING, "Failed to load dynamic world " + loadDirectoryName, e);
+            } finally {
+                this.creatingDirectories.remove(loadDirectoryName);
+            }
+
+            this.finishCreation(creation, world);
+        });
+
+    }
+
+    /**
+     * Completes a queued world creation and starts the next queued creations.
+     * @param creation creation
+     * @param world created world or null
+     */
+    private void finishCreation(PendingCreation creation, @Nullable World world) {
+
+        synchronized (this.creationQueue) {
+            this.activeCreations--;
+        }
+
+        creation.future().complete(world);
+        if (!this.isRemoved()) this.startQueuedCreations();
+    }
+
+    /**
+     * Copies the specified template into a new dynamic world directory.<br/>
+     * Does not access the world and can therefore be called asynchronously.<br/>
+     * The created directory is protected from the cleanup until it is removed from {@link #creatingDirectories} by the caller.
+     * @param name template world directory name
+     * @param area area that should be copied (null to copy the full world)
+     * @return name of the created world directory or null if the copy failed
+     */
+    private String copyTemplate(String name, @Nullable BlockBox area) {
         if (DISALLOWED_WORLD_NAMES.contains(name)) return null;
 
         // Check if directory exists
@@ -90,10 +248,35 @@ public class DynamicWorldLoadingSystem implements Runnable {
 
         // Copy world directory
 
+        long startTime = System.nanoTime();
+        AtomicLong bytes = new AtomicLong();
+
         String directoryName = this.getPrefix() + name + "-" + (this.nextId.getAndAdd(1));
         Path copyPath = this.getServerDirectory().resolve(directoryName).toAbsolutePath();
         if (Files.exists(copyPath) || Files.isDirectory(copyPath)) return null;
-        if (!MiscUtils.copyDirectory(worldPath, copyPath)) return null;
+        BlockBox copyArea = area != null ? area.clone() : null;
+        if (copyArea != null) copyArea.sort();
+
+        // Protect the directory from the cleanup task while it is copied and not loaded yet
+        this.creatingDirectories.add(directoryName);
+
+        boolean success = false;
+        try {
+            success = MiscUtils.copyDirectory(worldPath, copyPath, file -> {
+                if (!isFileInArea(file, copyArea)) return false;
+
+                try {
+                    bytes.addAndGet(Files.size(file));
+                } catch (IOException ignored) {}
+
+                return true;
+            });
+        } finally {
+            if (!success) this.creatingDirectories.remove(directoryName);
+        }
+
+        this.metrics.recordCopy(System.nanoTime() - startTime, bytes.get());
+        if (!success) return null;
 
         // Delete UID file
 
@@ -104,11 +287,35 @@ public class DynamicWorldLoadingSystem implements Runnable {
             this.plugin.getLogger().log(Level.WARNING, "Failed to delete UID file in world " + directoryName, e);
         }
 
+        return directoryName;
+    }
+
+    /**
+     * Loads a copied dynamic world.
+     * @param directoryName world directory name
+     * @return loaded world or null if the world was not loaded
+     */
+    private World loadDynamicWorld(String directoryName) {
+
         // Load world
 
+        long startTime = System.nanoTime();
+
         WorldCreator worldCreator = new WorldCreator(directoryName);
-        World world = worldCreator.createWorld();
-        if (world == null) return null;
+        World world;
+        try {
+            world = worldCreator.createWorld();
+        } catch (RuntimeException e) {
+            this.metrics.recordFailedCreation();
+            throw e;
+        }
+
+        if (world == null) {
+            this.metrics.recordFailedCreation();
+            return null;
+        }
+
+        this.metrics.recordLoad(System.nanoTime() - startTime);
 
         // Set values
 
@@ -131,6 +338,7 @@ public class DynamicWorldLoadingSystem implements Runnable {
 
         World world = this.plugin.getServer().getWorld(name);
         if (world != null) {
+            if (this.isDynamicWorld(world)) this.releasePreloadedChunks(world);
             WorldUtils.unloadWorld(world, false);
         }
 
@@ -139,8 +347,65 @@ public class DynamicWorldLoadingSystem implements Runnable {
         if (!Files.isDirectory(path)) return;
         if (!this.isValidWorldPath(path)) return;
 
-        MiscUtils.deleteDirectory(path);
+        if (MiscUtils.deleteDirectory(path)) this.metrics.recordDeletion();
+
+    }
+
+    // ----- CHUNK PRELOADING -----
+
+    /**
+     * Asynchronously loads all chunks covering the specified area of a dynamic world and adds a plugin chunk ticket to each of them.<br/>
+     * The chunks stay loaded until the world is deleted or {@link #releasePreloadedChunks(World)} is called,
+     * so players teleporting into the area do not trigger synchronous chunk loads.
+     * @param world dynamic world
+     * @param area area that should be loaded
+     * @return future which is completed with the world when all chunks have been loaded
+     */
+    public CompletableFuture<World> preloadArea(@NotNull World world, @NotNull BlockBox area) {
+        if (this.isRemoved()) return CompletableFuture.failedFuture(new IllegalStateException("DynamicWorldLoadingSystem has been removed"));
+        if (!this.isDynamicWorld(world)) return CompletableFuture.failedFuture(new IllegalArgumentException("World " + world.getName() + " is not a dynamic world"));
+
+        BlockBox box = area.clone();
+        box.sort();
+
+        int minChunkX = box.getMinX() >> 4;
+        int minChunkZ = box.getMinZ() >> 4;
+        int maxChunkX = box.getMaxX() >> 4;
+        int maxChunkZ = box.getMaxZ() >> 4;
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int x = minChunkX; x <= maxChunkX; x++) {
+            for (int z = minChunkZ; z <= maxChunkZ; z++) {
+                futures.add(world.getChunkAtAsync(x, z, true).thenAccept(this::addPreloadTicket));
+            }
+        }
 
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> world);
+    }
+
+    /**
+     * Adds the plugin chunk ticket to a chunk loaded by {@link #preloadArea(World, BlockBox)}.<br/>
+     * Chunks can finish loading after the world has been deleted (or the system has been removed).
+     * The ticket is only added while the world is still loaded, so it does not keep the chunk of a deleted world loaded.
+     * @param chunk loaded chunk
+     */
+    private void addPreloadTicket(@NotNull Chunk chunk) {
+        if (this.isRemoved()) return;
+
+        World world = chunk.getWorld();
+        if (this.plugin.getServer().getWorld(world.getUID()) != world) return;
+
+        chunk.addPluginChunkTicket(this.plugin);
+    }
+
+    /**
+     * Removes all plugin chunk tickets that have been added by {@link #preloadArea(World, BlockBox)}.<br/>
+     * This is done automatically when the world is deleted.
+     * @param world dynamic world
+     */
+    public void releasePreloadedChunks(@NotNull World world) {
+        if (!this.isDynamicWorld(world)) return;
+        world.removePluginChunkTickets(this.plugin);
     }
 
     // ----- WORLD CLEANUP -----
@@ -166,6 +431,7 @@ public class DynamicWorldLoadingSystem implements Runnable {
     public void deleteUnloadedDynamicWorlds() {
 
         for (Path path : this.getDynamicWorldDirectories()) {
+            if (this.creatingDirectories.contains(path.getFileName().toString())) continue;
 
             World world = this.plugin.getServer().getWorld(path.getFileName().toString());
             if (world == null) {
@@ -261,6 +527,36 @@ public class DynamicWorldLoadingSystem implements Runnable {
         return world.getName().startsWith(this.getPrefix());
     }
 
+    /**
+     * Returns true if the specified world file is inside the specified area.<br/>
+     * Files that are not region files (<code>r.X.Z.mca</code> inside a <code>region</code>, <code>entities</code> or <code>poi</code> directory) are always inside the area.
+     * A region file is inside the area if any of its 32x32 chunks overlaps the area.
+     * @param file file path
+     * @param area sorted area (null for everything)
+     * @return true if the file is inside the area
+     */
+    public static boolean isFileInArea(@NotNull Path file, @Nullable BlockBox area) {
+        if (area == null) return true;
+
+        Path parent = file.getParent();
+        if (parent == null || parent.getFileName() == null) return true;
+        if (!REGION_DIRECTORY_NAMES.contains(parent.getFileName().toString())) return true;
+
+        String[] parts = file.getFileName().toString().split("\\.");
+        if (parts.length != 4 || !parts[0].equals("r") || !parts[3].equals("mca")) return true;
+
+        int regionX;
+        int regionZ;
+        try {
+            regionX = Integer.parseInt(parts[1]);
+            regionZ = Integer.parseInt(parts[2]);
+        } catch (NumberFormatException e) {
+            return true;
+        }
+
+        return regionX >= (area.getMinX() >> 9) && regionX <= (area.getMaxX() >> 9) && regionZ >= (area.getMinZ() >> 9) && regionZ <= (area.getMaxZ() >> 9);
+    }
+
     // REMOVE
 
     /**
@@ -268,9 +564,93 @@ public class DynamicWorldLoadingSystem implements Runnable {
      */
     public void remove() {
         this.task.cancel();
+
+        List<PendingCreation> pendingCreations;
+        synchronized (this.creationQueue) {
+            pendingCreations = List.copyOf(this.creationQueue);
+            this.creationQueue.clear();
+        }
+        pendingCreations.forEach(creation -> creation.future().complete(null));
+
         this.unloadAndDeleteAllDynamicWorlds();
     }
 
+    // METRICS AND LIMITS
+
+    /**
+     * Returns the lifecycle metrics of this dynamic world loading system.
+     * @return metrics
+     */
+    public DynamicWorldMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Returns the amount of currently loaded dynamic worlds.
+     * @return live dynamic world count
+     */
+    public int getDynamicWorldCount() {
+        return this.getDynamicWorlds().size();
+    }
+
+    /**
+     * Returns the amount of dynamic world directories that are no longer loaded and are waiting for deletion.
+     * @return deletion backlog
+     */
+    public int getDeletionBacklog() {
+        int backlog = 0;
+
+        for (Path path : this.getDynamicWorldDirectories()) {
+            if (this.creatingDirectories.contains(path.getFileName().toString())) continue;
+            if (this.plugin.getServer().getWorld(path.getFileName().toString()) == null) backlog++;
+        }
+
+        return backlog;
+    }
+
+    /**
+     * Returns the amount of world creations that are currently running.
+     * @return active creations
+     */
+    public int getActiveCreations() {
+        synchronized (this.creationQueue) {
+            return this.activeCreations;
+        }
+    }
+
+    /**
+     * Returns the amount of world creations waiting for a free creation slot.
+     * @return queued creations
+     */
+    public int getQueuedCreations() {
+        synchronized (this.creationQueue) {
+            return this.creationQueue.size();
+        }
+    }
+
+    /**
+     * Returns the maximum amount of world creations of {@link #createWorldFromTemplateAsync(String, BlockBox)} that can run at the same time.
+     * @return max concurrent creations (0 = unlimited)
+     */
+    public int getMaxConcurrentCreations() {
+        synchronized (this.creationQueue) {
+            return this.maxConcurrentCreations;
+        }
+    }
+
+    /**
+     * Sets the maximum amount of world creations of {@link #createWorldFromTemplateAsync(String, BlockBox)} that can run at the same time.<br/>
+     * Synchronous creations using {@link #createWorldFromTemplate(String, BlockBox)} are not limited.
+     * @param maxConcurrentCreations max concurrent creations (0 = unlimited)
+     */
+    public void setMaxConcurrentCreations(int maxConcurrentCreations) {
+        synchronized (this.creationQueue) {
+            this.maxConcurrentCreations = Math.max(maxConcurrentCreations, 0);
+        }
+
+        this.startQueuedCreations();
+    }
+
     // OTHER
 
     /**
@@ -299,6 +679,14 @@ public class DynamicWorldLoadingSystem implements Runnable {
 
     // UTILITIES
 
+    /**
+     * A world creation waiting in the creation queue.
+     * @param name template world directory name
+     * @param area area that should be copied
+     * @param future future of the creation
+     */
+    private record PendingCreation(String name, @Nullable BlockBox area, CompletableFuture<World> future) {}
+
     /**
      * Returns the prefix of the world directories for this dynamic world loading system.
      * @return prefix
@@ -0,0 +1,119 @@
+package net.chaossquad.mclib.world;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lifecycle metrics of a {@link DynamicWorldLoadingSystem}.<br/>
+ * All values are counted since the dynamic world loading system has been created.
+ * Durations are measured in nanoseconds.
+ */
+public final class DynamicWorldMetrics {
+    private final AtomicLong worldsCreated;
+    private final AtomicLong failedCreations;
+    private final AtomicLong totalCopyDuration;
+    private final AtomicLong lastCopyDuration;
+    private final AtomicLong totalLoadDuration;
+    private final AtomicLong lastLoadDuration;
+    private final AtomicLong bytesCopied;
+    private final AtomicLong worldsDeleted;
+
+    DynamicWorldMetrics() {
+        this.worldsCreated = new AtomicLong();
+        this.failedCreations = new AtomicLong();
+        this.totalCopyDuration = new AtomicLong();
+        this.lastCopyDuration = new AtomicLong();
+        this.totalLoadDuration = new AtomicLong();
+        this.lastLoadDuration = new AtomicLong();
+        this.bytesCopied = new AtomicLong();
+        this.worldsDeleted = new AtomicLong();
+    }
+
+    // RECORD
+
+    void recordCopy(long duration, long bytes) {
+        this.totalCopyDuration.addAndGet(duration);
+        this.lastCopyDuration.set(duration);
+        this.bytesCopied.addAndGet(bytes);
+    }
+
+    void recordLoad(long duration) {
+        this.totalLoadDuration.addAndGet(duration);
+        this.lastLoadDuration.set(duration);
+        this.worldsCreated.incrementAndGet();
+    }
+
+    void recordFailedCreation() {
+        this.failedCreations.incrementAndGet();
+    }
+
+    void recordDeletion() {
+        this.worldsDeleted.incrementAndGet();
+    }
+
+    // GETTER
+
+    /**
+     * Returns the amount of dynamic worlds that have been successfully created.
+     * @return created worlds
+     */
+    public long getWorldsCreated() {
+        return this.worldsCreated.get();
+    }
+
+    /**
+     * Returns the amount of world creations that have failed.
+     * @return failed creations
+     */
+    public long getFailedCreations() {
+        return this.failedCreations.get();
+    }
+
+    /**
+     * Returns the total time spent copying template worlds.
+     * @return total copy duration in nanoseconds
+     */
+    public long getTotalCopyDuration() {
+        return this.totalCopyDuration.get();
+    }
+
+    /**
+     * Returns the duration of the last template copy.
+     * @return last copy duration in nanoseconds
+     */
+    public long getLastCopyDuration() {
+        return this.lastCopyDuration.get();
+    }
+
+    /**
+     * Returns the total time spent loading dynamic worlds.
+     * @return total load duration in nanoseconds
+     */
+    public long getTotalLoadDuration() {
+        return this.totalLoadDuration.get();
+    }
+
+    /**
+     * Returns the duration of the last world load.
+     * @return last load duration in nanoseconds
+     */
+    public long getLastLoadDuration() {
+        return this.lastLoadDuration.get();
+    }
+
+    /**
+     * Returns the total amount of bytes copied from templates.
+     * @return bytes copied
+     */
+    public long getBytesCopied() {
+        return this.bytesCopied.get();
+    }
+
+    /**
+     * Returns the amount of dynamic world directories that have been deleted.
+     * @return deleted worlds
+     */
+    public long getWorldsDeleted() {
+        return this.worldsDeleted.get();
+    }
+
+}
@@ -0,0 +1,200 @@
+package net.chaossquad.mclib.gamemode.entity;
+
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import net.chaossquad.mclib.gamemode.executable.ListenerRegistrar;
+import net.chaossquad.mclib.gamemode.executable.ManagedListener;
+import net.chaossquad.mclib.scheduler.SchedulerInterface;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Event-driven respawn handling for {@link RespawningManagedEntity}s.<br/>
+ * Attached entities are not polled anymore: the index listens to the removal of their entities and checks them in the next tick.
+ * When a RespawningManagedEntity cannot respawn because its chunk (or the chunk's entities) is not loaded,
+ * it is added to this index and respawns in the next tick after the entities of the chunk have been loaded.<br/>
+ * Attach RespawningManagedEntities using {@link RespawningManagedEntity#setRespawnIndex(ChunkRespawnIndex)}.
+ * Removed RespawningManagedEntities are dropped from the index automatically.
+ */
+public final class ChunkRespawnIndex implements ManagedListener {
+    @NotNull private final SchedulerInterface scheduler;
+    @NotNull private final Map<UUID, Map<Long, List<RespawningManagedEntity<?>>>> pending;
+    @NotNull private final Map<UUID, RespawningManagedEntity<?>> tracked;
+    private int size;
+    private boolean removed;
+
+    /**
+     * Creates a new ChunkRespawnIndex.
+     * @param scheduler task scheduler
+     * @param registrar listener registrar
+     */
+    public ChunkRespawnIndex(@NotNull SchedulerInterface scheduler, @NotNull ListenerRegistrar registrar) {
+        this.scheduler = scheduler;
+        this.pending = new HashMap<>();
+        this.tracked = new HashMap<>();
+        this.size = 0;
+        this.removed = false;
+
+        registrar.registerListener(this);
+    }
+
+    // ----- EVENTS -----
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        this.onChunkReady(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        if (!event.getChunk().isEntitiesLoaded()) return;
+        this.onChunkReady(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemoveFromWorld(EntityRemoveFromWorldEvent event) {
+        if (this.removed) return;
+
+        RespawningManagedEntity<?> entity = this.tracked.remove(event.getEntity().getUniqueId());
+        if (entity == null) return;
+
+        // The entity is checked in the next tick because it is still in the world while the event is called
+        this.scheduler.runTaskLater(() -> {
+            if (entity.isRemoved() || entity.getRespawnIndex() != this) return;
+            entity.respawnFromIndex();
+        }, 1, "chunk_respawn_index_check");
+    }
+
+    /**
+     * Respawns the pending entities of the specified chunk in the next tick.
+     * @param chunk chunk
+     */
+    private void onChunkReady(@NotNull Chunk chunk) {
+        if (this.removed) return;
+
+        Map<Long, List<RespawningManagedEntity<?>>> worldEntities = this.pending.get(chunk.getWorld().getUID());
+        if (worldEntities == null) return;
+
+        List<RespawningManagedEntity<?>> entities = worldEntities.remove(Chunk.getChunkKey(chunk.getX(), chunk.getZ()));
+        if (entities == null) return;
+        if (worldEntities.isEmpty()) this.pending.remove(chunk.getWorld().getUID());
+        this.size -= entities.size();
+
+        // The entities are respawned in the next tick because the chunk is not fully ready while the event is called
+        this.scheduler.runTaskLater(() -> {
+            for (RespawningManagedEntity<?> entity : entities) {
+                if (entity.isRemoved() || entity.getRespawnIndex() != this) continue;
+                entity.respawnFromIndex();
+            }
+        }, 1, "chunk_respawn_index_respawn");
+    }
+
+    // ----- INDEX -----
+
+    /**
+     * Adds a RespawningManagedEntity which is waiting for its chunk.
+     * @param entity entity
+     */
+    void add(@NotNull RespawningManagedEntity<?> entity) {
+        Location location = entity.getLocation();
+        World world = entity.getWorld();
+
+        this.pending.computeIfAbsent(world.getUID(), uid -> new HashMap<>())
+                .computeIfAbsent(Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4), key -> new ArrayList<>())
+                .add(entity);
+        this.size++;
+    }
+
+    /**
+     * Tracks the entity of a RespawningManagedEntity, so the RespawningManagedEntity is checked when the entity is removed from the world.
+     * @param managedEntity managed entity
+     * @param entity current entity
+     */
+    void track(@NotNull RespawningManagedEntity<?> managedEntity, @NotNull Entity entity) {
+        if (this.removed) return;
+        this.tracked.put(entity.getUniqueId(), managedEntity);
+    }
+
+    /**
+     * Drops a RespawningManagedEntity from the index.<br/>
+     * This is called when the RespawningManagedEntity is removed or attached to another index.
+     * @param managedEntity managed entity
+     * @param entity current entity (or null)
+     */
+    void forget(@NotNull RespawningManagedEntity<?> managedEntity, @Nullable Entity entity) {
+        if (entity != null) this.tracked.remove(entity.getUniqueId(), managedEntity);
+        if (!managedEntity.isRespawnPending()) return;
+
+        Location location = managedEntity.getLocation();
+        UUID worldId = managedEntity.getWorld().getUID();
+        Map<Long, List<RespawningManagedEntity<?>>> worldEntities = this.pending.get(worldId);
+        if (worldEntities == null) return;
+
+        long chunkKey = Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        List<RespawningManagedEntity<?>> entities = worldEntities.get(chunkKey);
+        if (entities == null || !entities.remove(managedEntity)) return;
+        this.size--;
+
+        if (entities.isEmpty()) worldEntities.remove(chunkKey);
+        if (worldEntities.isEmpty()) this.pending.remove(worldId);
+    }
+
+    /**
+     * Returns the amount of entities waiting for their chunk.
+     * @return pending entities
+     */
+    public int size() {
+        return this.size;
+    }
+
+    // ----- REMOVE -----
+
+    /**
+     * Removes the index.<br/>
+     * Attached entities are detached and fall back to the periodic respawn check.
+     */
+    public void remove() {
+        if (this.removed) return;
+        this.removed = true;
+
+        Set<RespawningManagedEntity<?>> entities = Collections.newSetFromMap(new IdentityHashMap<>());
+        entities.addAll(this.tracked.values());
+
+        for (Map<Long, List<RespawningManagedEntity<?>>> worldEntities : this.pending.values()) {
+            for (List<RespawningManagedEntity<?>> chunkEntities : worldEntities.values()) {
+                entities.addAll(chunkEntities);
+            }
+        }
+
+        this.pending.clear();
+        this.tracked.clear();
+        this.size = 0;
+
+        for (RespawningManagedEntity<?> entity : entities) {
+            if (entity.getRespawnIndex() == this) entity.setRespawnIndex(null);
+        }
+
+    }
+
+    @Override
+    public boolean toBeRemoved() {
+        return this.removed;
+    }
+
+}
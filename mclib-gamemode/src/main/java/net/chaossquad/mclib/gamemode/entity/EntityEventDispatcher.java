@@ -0,0 +1,201 @@
+package net.chaossquad.mclib.gamemode.entity;
+
+import net.chaossquad.mclib.dynamicevents.EventListenerManager;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dispatches events to the {@link ManagedEntity} they concern.<br/>
+ * Instead of every ManagedEntity listening to every event and checking if the event concerns its entity,
+ * the dispatcher registers a single Bukkit handler per event type and looks up the ManagedEntity by the UUID of the event's entity.
+ * The cost of an event therefore does not grow with the amount of managed entities.<br/>
+ * ManagedEntities are attached using {@link ManagedEntity#setEventDispatcher(EntityEventDispatcher)} and receive events through
+ * handlers added with {@link ManagedEntity#addEventHandler(Class, java.util.function.Consumer)}.<br/>
+ * The dispatcher is excepted from the {@link EventListenerManager}, so it has to be removed manually using {@link #remove()} when it is no longer needed.
+ */
+public final class EntityEventDispatcher implements Listener {
+    @NotNull private final EventListenerManager eventListenerManager;
+    @NotNull private final Map<UUID, ManagedEntity<?>> entities;
+    @NotNull private final Map<Class<? extends Event>, Function<? super Event, @Nullable Entity>> eventTypes;
+    private boolean removed;
+
+    /**
+     * Creates a new EntityEventDispatcher.
+     * @param eventListenerManager EventListenerManager (the dispatcher is added as excepted listener)
+     */
+    public EntityEventDispatcher(@NotNull EventListenerManager eventListenerManager) {
+        this.eventListenerManager = eventListenerManager;
+        this.entities = new HashMap<>();
+        this.eventTypes = new HashMap<>();
+        this.removed = false;
+
+        this.eventListenerManager.addExceptedListener(this);
+    }
+
+    // ----- EVENT TYPES -----
+
+    /**
+     * Registers the Bukkit handler for the specified entity event type.<br/>
+     * Entity events are registered automatically with {@link EventPriority#NORMAL} when a ManagedEntity adds a handler for them,
+     * so this only needs to be called for a different priority.
+     * @param eventType event type
+     * @param priority priority
+     * @param ignoreCancelled ignore cancelled events
+     * @param <E> event type
+     */
+    public <E extends EntityEvent> void registerEventType(@NotNull Class<E> eventType, @NotNull EventPriority priority, boolean ignoreCancelled) {
+        this.registerEventType(eventType, EntityEvent::getEntity, priority, ignoreCancelled);
+    }
+
+    /**
+     * Registers the Bukkit handler for the specified event type.<br/>
+     * The entity extractor returns the entity the event should be dispatched to.
+     * This allows dispatching events which are not entity events, like the clicked entity of a player interact entity event.
+     * @param eventType event type
+     * @param entityExtractor returns the entity the event concerns (or null)
+     * @param priority priority
+     * @param ignoreCancelled ignore cancelled events
+     * @param <E> event type
+     */
+    public <E extends Event> void registerEventType(@NotNull Class<E> eventType, @NotNull Function<E, @Nullable Entity> entityExtractor, @NotNull EventPriority priority, boolean ignoreCancelled) {
+        if (this.removed) throw new IllegalStateException("EntityEventDispatcher has been removed");
+        if (this.eventTypes.containsKey(eventType)) return;
+
+        this.eventTypes.put(eventType, event -> entityExtractor.apply(eventType.cast(event)));
+
+        this.eventListenerManager.getPlugin().getServer().getPluginManager().registerEvent(eventType, this, priority, (listener, event) -> {
+            if (!eventType.isInstance(event)) return;
+            this.dispatch(eventType, event);
+        }, this.eventListenerManager.getPlugin(), ignoreCancelled);
+    }
+
+    /**
+     * Returns true if a Bukkit handler for the specified event type is registered.
+     * @param eventType event type
+     * @return registered
+     */
+    public boolean isEventTypeRegistered(@NotNull Class<? extends Event> eventType) {
+        return this.eventTypes.containsKey(eventType);
+    }
+
+    /**
+     * Registers the specified event type if it is an entity event and not registered yet.<br/>
+     * Event types which are not entity events cannot be registered automatically because they need an entity extractor.
+     * @param eventType event type
+     * @return true if the event type is registered, false if it is not an entity event and has not been registered or the dispatcher has been removed
+     */
+    @SuppressWarnings("unchecked")
+    boolean ensureEventTypeRegistered(@NotNull Class<? extends Event> eventType) {
+        if (this.removed) return false;
+        if (this.eventTypes.containsKey(eventType)) return true;
+        if (!EntityEvent.class.isAssignableFrom(eventType)) return false;
+        this.registerEventType((Class<? extends EntityEvent>) eventType, EventPriority.NORMAL, false);
+        return true;
+    }
+
+    // ----- DISPATCH -----
+
+    /**
+     * Dispatches the event to the ManagedEntity of the event's entity.
+     * @param eventType registered event type
+     * @param event event
+     */
+    private void dispatch(@NotNull Class<? extends Event> eventType, @NotNull Event event) {
+
+        try {
+
+            Function<? super Event, @Nullable Entity> entityExtractor = this.eventTypes.get(eventType);
+            if (entityExtractor == null) return;
+
+            Entity entity = entityExtractor.apply(event);
+            if (entity == null) return;
+
+            ManagedEntity<?> managedEntity = this.entities.get(entity.getUniqueId());
+            if (managedEntity == null || managedEntity.isRemoved()) return;
+
+            managedEntity.handleDispatchedEvent(eventType, event);
+
+        } catch (Exception e) {
+            this.eventListenerManager.getPlugin().getLogger().log(Level.WARNING, "Exception while dispatching " + event.getEventName() + " in " + this, e);
+        }
+
+    }
+
+    // ----- ENTITIES -----
+
+    /**
+     * Updates the entity index when the entity of a ManagedEntity changes.
+     * @param managedEntity managed entity
+     * @param oldEntity previous entity
+     * @param newEntity new entity
+     */
+    void updateEntity(@NotNull ManagedEntity<?> managedEntity, @Nullable Entity oldEntity, @Nullable Entity newEntity) {
+        if (oldEntity != null) this.entities.remove(oldEntity.getUniqueId(), managedEntity);
+        if (newEntity != null && !this.removed) this.entities.put(newEntity.getUniqueId(), managedEntity);
+    }
+
+    /**
+     * Returns the ManagedEntity of the specified entity.
+     * @param uuid entity uuid
+     * @return managed entity or null
+     */
+    public @Nullable ManagedEntity<?> getManagedEntity(@NotNull UUID uuid) {
+        return this.entities.get(uuid);
+    }
+
+    /**
+     * Returns the amount of indexed entities.
+     * @return entity count
+     */
+    public int getEntityCount() {
+        return this.entities.size();
+    }
+
+    // ----- REMOVE -----
+
+    /**
+     * Unregisters all Bukkit handlers of this dispatcher.
+     */
+    public void remove() {
+        this.removed = true;
+        HandlerList.unregisterAll(this);
+        this.eventListenerManager.removeExceptedListener(this);
+        this.entities.clear();
+        this.eventTypes.clear();
+    }
+
+    /**
+     * Returns true if the dispatcher has been removed.
+     * @return removed
+     */
+    public boolean isRemoved() {
+        return this.removed;
+    }
+
+    /**
+     * Returns the logger of the plugin.
+     * @return logger
+     */
+    @NotNull Logger getLogger() {
+        return this.eventListenerManager.getPlugin().getLogger();
+    }
+
+    @Override
+    public String toString() {
+        return "EntityEventDispatcher_" + System.identityHashCode(this);
+    }
+
+}
@@ -8,24 +8,36 @@ import net.chaossquad.mclib.scheduler.SchedulerInterface;
 import net.chaossquad.mclib.scheduler.TaskRunnable;
 import net.chaossquad.mclib.scheduler.WrappedTaskScheduler;
 import org.bukkit.entity.Entity;
+import org.bukkit.event.Event;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 /**
  * This class provides a manager for entities.<br/>
  * It allows to schedule tasks for entities and works as managed listener.<br/>
  * The goal of this class is to allow scheduling tasks and listen to events while the entity is alive, and then auto-cleanup tasks and listeners when the entity is dead.<br/>
  * <b>DO NOT REGISTER THIS ENTITY DIRECTLY TO THE BUKKIT EVENT LISTENER!!!<br/>
  * Only register it to a {@link CoreExecutable} or a similar solution!<br/>
- * If you register it directly to Bukkit, it causes a memory leak because the listener is never cleaned up!</b>
+ * If you register it directly to Bukkit, it causes a memory leak because the listener is never cleaned up!</b><br/>
+ * When many managed entities listen to the same events, use an {@link EntityEventDispatcher} and {@link #addEventHandler(Class, Consumer)}
+ * instead of event handler methods, so each event is only delivered to the ManagedEntity it concerns.
  * @param <ENTITY_TYPE> entity type
  */
 public abstract class ManagedEntity<ENTITY_TYPE extends Entity> implements ManagedListener, Removable, SchedulerInterface {
     @NotNull private Removable removable;
     @NotNull private final WrappedTaskScheduler scheduler;
+    @NotNull private final Map<Class<? extends Event>, List<Consumer<Event>>> eventHandlers;
     @Nullable private ENTITY_TYPE entity;
+    @Nullable private EntityEventDispatcher eventDispatcher;
     private boolean removed;
+    private final boolean managedByRegistry;
 
     /**
      * Creates a ManagedEntity.
@@ -35,8 +47,11 @@ public abstract class ManagedEntity<ENTITY_TYPE extends Entity> implements Manag
     public ManagedEntity(@NotNull SchedulerInterface scheduler, @NotNull ListenerRegistrar registrar) {
         this.removable = () -> false;
         this.scheduler = new WrappedTaskScheduler(scheduler, this, this.toString());
+        this.eventHandlers = new HashMap<>();
         this.entity = null;
+        this.eventDispatcher = null;
         this.removed = false;
+        this.managedByRegistry = false;
 
         // This task is scheduled directly by the real task scheduler because it has a different remove condition. All other tasks are scheduled via the internal methods.
         scheduler.scheduleRepeatingTask(this::entityCleanupTask, 1, 200, this::isCleanedUp, this + "_entity_cleanup");
@@ -46,12 +61,31 @@ public abstract class ManagedEntity<ENTITY_TYPE extends Entity> implements Manag
         registrar.registerListener(this);
     }
 
+    /**
+     * Creates a ManagedEntity which is managed by a {@link ManagedEntityRegistry}.<br/>
+     * The entity cleanup and remove check are done by the batched sweeps of the registry instead of own tasks.
+     * The ManagedEntity is added to the registry and registered to its listener registrar at the end of this constructor, like the other constructor does.
+     * The sweeps do not touch it before the next scheduler tick, so subclasses are fully constructed before the registry uses them.
+     * @param registry managed entity registry
+     */
+    public ManagedEntity(@NotNull ManagedEntityRegistry registry) {
+        this.removable = () -> false;
+        this.scheduler = new WrappedTaskScheduler(registry.getScheduler(), this, this.toString());
+        this.eventHandlers = new HashMap<>();
+        this.entity = null;
+        this.eventDispatcher = null;
+        this.removed = false;
+        this.managedByRegistry = true;
+
+        registry.add(this);
+    }
+
     // ----- TASKS -----
 
     /**
      * Marks the entity for removal when the remove condition is met.
      */
-    private void removeTask() {
+    final void removeTask() {
 
         try {
 
@@ -70,7 +104,7 @@ public abstract class ManagedEntity<ENTITY_TYPE extends Entity> implements Manag
      * Stays active until the ManagedEntity is set as removed and the ManagedEntity is dead.<br/>
      * Ensures that the Entity will be removed when the ManagedEntity is removed.
      */
-    private void entityCleanupTask() {
+    final void entityCleanupTask() {
         if (!this.removed) return;
 
         if (this.entity == null) return;
@@ -102,6 +136,11 @@ public abstract class ManagedEntity<ENTITY_TYPE extends Entity> implements Manag
             this.entity.remove();
         }
 
+        // Update the event dispatcher index
+        if (this.eventDispatcher != null) {
+            this.eventDispatcher.updateEntity(this, this.entity, entity);
+        }
+
         // If the specified entity is null, set the current entity to null and do nothing more
         if (entity == null) {
             this.entity = null;
@@ -131,6 +170,73 @@ public abstract class ManagedEntity<ENTITY_TYPE extends Entity> implements Manag
     @ApiStatus.OverrideOnly
     protected void onEntitySet() {}
 
+    // ----- EVENTS -----
+
+    /**
+     * Attaches this ManagedEntity to an {@link EntityEventDispatcher}.<br/>
+     * Events concerning the entity are then routed to the handlers added with {@link #addEventHandler(Class, Consumer)}.
+     * Handlers for event types which are not entity events and have not been registered at the dispatcher with an entity extractor
+     * are not called until the event type is registered. A warning is logged for them.
+     * @param eventDispatcher event dispatcher (null to detach)
+     */
+    public final void setEventDispatcher(@Nullable EntityEventDispatcher eventDispatcher) {
+
+        if (this.eventDispatcher != null) {
+            this.eventDispatcher.updateEntity(this, this.entity, null);
+        }
+
+        this.eventDispatcher = eventDispatcher;
+        if (this.eventDispatcher == null) return;
+
+        for (Class<? extends Event> eventType : this.eventHandlers.keySet()) {
+            if (this.eventDispatcher.ensureEventTypeRegistered(eventType)) continue;
+            this.eventDispatcher.getLogger().warning("Event type " + eventType.getName() + " of " + this + " is not registered at " + this.eventDispatcher + ", its handlers are not called until it is registered with an entity extractor");
+        }
+
+        if (!this.removed) this.eventDispatcher.updateEntity(this, null, this.entity);
+    }
+
+    /**
+     * Returns the event dispatcher this ManagedEntity is attached to.
+     * @return event dispatcher or null
+     */
+    public final @Nullable EntityEventDispatcher getEventDispatcher() {
+        return this.eventDispatcher;
+    }
+
+    /**
+     * Adds a handler for events concerning the entity of this ManagedEntity.<br/>
+     * The handler is only called when this ManagedEntity is attached to an {@link EntityEventDispatcher}.
+     * Event types which are not entity events have to be registered at the dispatcher with an entity extractor first.
+     * @param eventType event type
+     * @param handler handler
+     * @param <E> event type
+     * @throws IllegalArgumentException if the ManagedEntity is attached to a dispatcher and the event type is not an entity event and not registered at it
+     */
+    protected final <E extends Event> void addEventHandler(@NotNull Class<E> eventType, @NotNull Consumer<E> handler) {
+
+        if (this.eventDispatcher != null && !this.eventDispatcher.isRemoved() && !this.eventDispatcher.ensureEventTypeRegistered(eventType)) {
+            throw new IllegalArgumentException("Event type " + eventType.getName() + " is not an EntityEvent and has to be registered at " + this.eventDispatcher + " with an entity extractor before adding handlers for it");
+        }
+
+        this.eventHandlers.computeIfAbsent(eventType, type -> new ArrayList<>()).add(event -> handler.accept(eventType.cast(event)));
+    }
+
+    /**
+     * Calls the handlers of a dispatched event.
+     * @param eventType registered event type
+     * @param event event
+     */
+    final void handleDispatchedEvent(@NotNull Class<? extends Event> eventType, @NotNull Event event) {
+        List<Consumer<Event>> handlers = this.eventHandlers.get(eventType);
+        if (handlers == null) return;
+
+        for (Consumer<Event> handler : handlers) {
+            handler.accept(event);
+        }
+
+    }
+
     // ----- SCHEDULER -----
 
     /**
@@ -208,6 +314,14 @@ public abstract class ManagedEntity<ENTITY_TYPE extends Entity> implements Manag
         return "ManagedEntity_" + System.identityHashCode(this);
     }
 
+    /**
+     * Returns true if this ManagedEntity is managed by a {@link ManagedEntityRegistry} instead of its own tasks.
+     * @return managed by registry
+     */
+    public final boolean isManagedByRegistry() {
+        return this.managedByRegistry;
+    }
+
     /**
      * Returns true if the entity is marked for removal.
      * @return marked for removal
@@ -221,10 +335,21 @@ public abstract class ManagedEntity<ENTITY_TYPE extends Entity> implements Manag
      * This will remove the entity and stop all its tasks.
      */
     public final void remove() {
+        boolean wasRemoved = this.removed;
         this.removed = true;
+        if (this.eventDispatcher != null) this.eventDispatcher.updateEntity(this, this.entity, null);
+        if (!wasRemoved) this.onRemove();
         this.entityCleanupTask();
     }
 
+    /**
+     * This method is for overriding in superclasses.<br/>
+     * It is called once when the ManagedEntity is marked as removed.
+     */
+    @SuppressWarnings("EmptyMethod")
+    @ApiStatus.OverrideOnly
+    protected void onRemove() {}
+
     /**
      * Returns true if the ManagedEntity has reached the end of its lifecycle and is fully cleaned up.<br/>
      * This means that its entity is dead, and it is marked for removal.
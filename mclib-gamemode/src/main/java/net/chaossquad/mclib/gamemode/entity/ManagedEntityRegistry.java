@@ -0,0 +1,183 @@
+package net.chaossquad.mclib.gamemode.entity;
+
+import net.chaossquad.mclib.gamemode.executable.ListenerRegistrar;
+import net.chaossquad.mclib.scheduler.SchedulerInterface;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Manages the periodic checks of many {@link ManagedEntity}s in batched sweeps.<br/>
+ * Normally, every ManagedEntity schedules its own repeating tasks (entity cleanup, remove check and the respawn check of {@link RespawningManagedEntity}).
+ * ManagedEntities created with a registry do not schedule these tasks. Instead, the registry keeps them in a dense array
+ * and runs each check for all entities in one task with the same interval.<br/>
+ * If the registry has no {@link ListenerRegistrar}, the entities are not registered as Bukkit listeners.
+ * Use an {@link EntityEventDispatcher} for their events in that case.
+ */
+public final class ManagedEntityRegistry {
+
+    /**
+     * Interval of the entity cleanup sweep in ticks.
+     */
+    public static final long CLEANUP_INTERVAL = 200;
+
+    /**
+     * Interval of the remove check sweep in ticks.
+     */
+    public static final long REMOVE_CHECK_INTERVAL = 100;
+
+    /**
+     * Interval of the respawn check sweep in ticks.
+     */
+    public static final long RESPAWN_CHECK_INTERVAL = 200;
+
+    @NotNull private final SchedulerInterface scheduler;
+    @Nullable private final ListenerRegistrar listenerRegistrar;
+    @Nullable private final EntityEventDispatcher eventDispatcher;
+    @NotNull private ManagedEntity<?>[] entities;
+    private int size;
+
+    /**
+     * Creates a new ManagedEntityRegistry.
+     * @param scheduler task scheduler (used for the sweeps and the task schedulers of the entities)
+     * @param listenerRegistrar listener registrar the entities are registered to (null to not register entities as listeners)
+     * @param eventDispatcher event dispatcher the entities are attached to (null to not attach them)
+     */
+    public ManagedEntityRegistry(@NotNull SchedulerInterface scheduler, @Nullable ListenerRegistrar listenerRegistrar, @Nullable EntityEventDispatcher eventDispatcher) {
+        this.scheduler = scheduler;
+        this.listenerRegistrar = listenerRegistrar;
+        this.eventDispatcher = eventDispatcher;
+        this.entities = new ManagedEntity<?>[16];
+        this.size = 0;
+
+        this.scheduler.scheduleRepeatingTask(this::cleanupSweep, 1, CLEANUP_INTERVAL, "managed_entity_registry_cleanup");
+        this.scheduler.scheduleRepeatingTask(this::removeCheckSweep, 1, REMOVE_CHECK_INTERVAL, "managed_entity_registry_remove_check");
+        this.scheduler.scheduleRepeatingTask(this::respawnCheckSweep, 1, RESPAWN_CHECK_INTERVAL, "managed_entity_registry_respawn_check");
+    }
+
+    // ----- SWEEPS -----
+
+    /**
+     * Removes the entities of removed ManagedEntities and drops ManagedEntities which are fully cleaned up.
+     */
+    private void cleanupSweep() {
+        int size = this.size;
+        int newSize = 0;
+
+        for (int i = 0; i < size; i++) {
+            ManagedEntity<?> entity = this.entities[i];
+
+            try {
+                if (entity.isCleanedUp()) continue;
+                entity.entityCleanupTask();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            this.entities[newSize++] = entity;
+        }
+
+        // Keep the entities which have been added during the sweep
+        for (int i = size; i < this.size; i++) {
+            this.entities[newSize++] = this.entities[i];
+        }
+
+        Arrays.fill(this.entities, newSize, this.size, null);
+        this.size = newSize;
+    }
+
+    /**
+     * Marks ManagedEntities as removed when their remove condition is met.
+     */
+    private void removeCheckSweep() {
+
+        for (int i = 0; i < this.size; i++) {
+            ManagedEntity<?> entity = this.entities[i];
+            if (entity.isRemoved()) continue;
+            entity.removeTask();
+        }
+
+    }
+
+    /**
+     * Runs the respawn check of all RespawningManagedEntities.
+     */
+    private void respawnCheckSweep() {
+
+        for (int i = 0; i < this.size; i++) {
+            if (!(this.entities[i] instanceof RespawningManagedEntity<?> entity)) continue;
+            if (entity.isRemoved()) continue;
+
+            // Entities with a respawn index are checked by the index
+            if (entity.getRespawnIndex() != null) continue;
+
+            try {
+                entity.tick();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+        }
+
+    }
+
+    // ----- ENTITIES -----
+
+    /**
+     * Adds a ManagedEntity to the registry.<br/>
+     * This is called at the end of the ManagedEntity constructor, before the fields of subclasses are initialized.
+     * It therefore must not call methods which subclasses can override or which pass the entity to foreign code:
+     * the entity is only stored, the sweeps do not run before the next scheduler tick, and attaching the event dispatcher only uses final methods.
+     * The entity is registered to the listener registrar immediately, like ManagedEntities without registry are.
+     * Registrars only store the listener and register its event handlers later (as {@link net.chaossquad.mclib.gamemode.executable.CoreExecutable} does),
+     * so no events reach the entity before it has been fully constructed.
+     * @param entity managed entity
+     */
+    void add(@NotNull ManagedEntity<?> entity) {
+        if (this.size == this.entities.length) this.entities = Arrays.copyOf(this.entities, this.entities.length * 2);
+        this.entities[this.size++] = entity;
+
+        if (this.eventDispatcher != null) entity.setEventDispatcher(this.eventDispatcher);
+
+        if (this.listenerRegistrar != null) this.listenerRegistrar.registerListener(entity);
+
+    }
+
+    /**
+     * Returns all ManagedEntities which are not fully cleaned up yet (or have not been dropped by the last cleanup sweep).
+     * @return list of managed entities
+     */
+    public @NotNull List<ManagedEntity<?>> getEntities() {
+        List<ManagedEntity<?>> entities = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) entities.add(this.entities[i]);
+        return entities;
+    }
+
+    /**
+     * Returns the amount of ManagedEntities in the registry.
+     * @return size
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the task scheduler.
+     * @return scheduler
+     */
+    public @NotNull SchedulerInterface getScheduler() {
+        return this.scheduler;
+    }
+
+    /**
+     * Returns the event dispatcher.
+     * @return event dispatcher or null
+     */
+    public @Nullable EntityEventDispatcher getEventDispatcher() {
+        return this.eventDispatcher;
+    }
+
+}
@@ -7,6 +7,7 @@ import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A managed entity that respawns every time it is killed.
@@ -16,6 +17,9 @@ public class RespawningManagedEntity<ENTITY_TYPE extends Entity> extends Managed
     @NotNull private final World world;
     @NotNull private final Location location;
     @NotNull private final EntityCreator<ENTITY_TYPE, RespawningManagedEntity<ENTITY_TYPE>> creator;
+    @Nullable private ChunkRespawnIndex respawnIndex;
+    private boolean respawnPending;
+    private int pollGeneration;
     private boolean enabled;
 
     /**
@@ -32,21 +36,60 @@ public class RespawningManagedEntity<ENTITY_TYPE extends Entity> extends Managed
         this.world = world;
         this.location = new Location(this.world, location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
         this.creator = entityCreator;
+        this.respawnIndex = null;
+        this.respawnPending = false;
+
+        this.pollGeneration = 0;
 
         this.enabled = enabled;
 
-        this.scheduleRepeatingTask(this::tick, 1, 200, "gui_npc_tick");
+        this.schedulePoll();
+    }
+
+    /**
+     * Creates a new RespawningManagedEntity which is managed by a {@link ManagedEntityRegistry}.<br/>
+     * The respawn check is done by the batched respawn sweep of the registry.
+     * @param world world
+     * @param registry managed entity registry
+     * @param location location
+     * @param entityCreator entity creator
+     * @param enabled enabled
+     */
+    public RespawningManagedEntity(@NotNull World world, @NotNull ManagedEntityRegistry registry, @NotNull Location location, @NotNull EntityCreator<ENTITY_TYPE, RespawningManagedEntity<ENTITY_TYPE>> entityCreator, boolean enabled) {
+        super(registry);
+        this.world = world;
+        this.location = new Location(this.world, location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+        this.creator = entityCreator;
+        this.respawnIndex = null;
+        this.respawnPending = false;
+        this.pollGeneration = 0;
+
+        this.enabled = enabled;
+    }
+
+    /**
+     * Schedules the periodic respawn check of entities which are not managed by a {@link ManagedEntityRegistry}.<br/>
+     * The task stops when a {@link ChunkRespawnIndex} is set or the check is scheduled again.
+     */
+    private void schedulePoll() {
+        if (this.isManagedByRegistry()) return;
+        int generation = ++this.pollGeneration;
+        this.getTaskScheduler().scheduleRepeatingTask(this::tick, 1, 200, () -> this.respawnIndex != null || this.pollGeneration != generation, "gui_npc_tick");
     }
 
     /**
      * Handles entity instance.<br/>
      * If the entity is enabled, it is spawned if it does not exist.<br/>
      * If the entity is disabled, it will be killed if it is existing.<br/>
-     * This is called every 200 ticks, but it can be called manually by subclasses if necessary.
+     * This is called every 200 ticks (by the entity's own task or the respawn sweep of its {@link ManagedEntityRegistry}), but it can be called manually by subclasses if necessary.
+     * If a {@link ChunkRespawnIndex} is set, it is only called by the index when the entity has been removed from the world or its chunk has been loaded.
      */
     protected final void tick() {
         if (this.toBeRemoved()) return;
 
+        // The respawn index will call this method when the chunk is loaded
+        if (this.respawnPending) return;
+
         // Remove entity if disabled
         if (!this.enabled) {
 
@@ -59,7 +102,15 @@ public class RespawningManagedEntity<ENTITY_TYPE extends Entity> extends Managed
 
         // Spawn entity if not disabled
         if (this.getEntity() == null || this.getEntity().isDead()) {
-            if (!WorldUtils.isSafeToSpawn(this.location.clone())) return;
+            if (!WorldUtils.isSafeToSpawn(this.location.clone())) {
+
+                if (this.respawnIndex != null) {
+                    this.respawnPending = true;
+                    this.respawnIndex.add(this);
+                }
+
+                return;
+            }
 
             try {
                 this.setEntity(this.creator.create(this));
@@ -68,11 +119,70 @@ public class RespawningManagedEntity<ENTITY_TYPE extends Entity> extends Managed
                 e.printStackTrace();
             }
 
-            return;
+        }
+
+        // The respawn index checks this entity again when its entity is removed from the world
+        if (this.respawnIndex != null && this.doesEntityExist()) {
+            this.respawnIndex.track(this, this.getEntity());
+        }
+
+    }
+
+    /**
+     * Called by the {@link ChunkRespawnIndex} when the chunk of this entity has been loaded or its entity has been removed from the world.
+     */
+    final void respawnFromIndex() {
+        this.respawnPending = false;
+        this.tick();
+    }
+
+    /**
+     * Sets the {@link ChunkRespawnIndex}.<br/>
+     * If set, the periodic respawn check is stopped and the entity is respawned by the index as soon as it has been removed from the world or its chunk has been loaded.
+     * @param respawnIndex respawn index (null to only use the periodic respawn check)
+     */
+    public final void setRespawnIndex(@Nullable ChunkRespawnIndex respawnIndex) {
+        if (this.respawnIndex == respawnIndex) return;
+        if (this.respawnIndex != null) this.respawnIndex.forget(this, this.getEntity());
+
+        this.respawnIndex = respawnIndex;
+        this.respawnPending = false;
+        if (this.toBeRemoved()) return;
+
+        if (this.respawnIndex != null) {
+            // Checked once to start tracking the current entity, the index takes over afterward
+            this.getTaskScheduler().runTaskLater(this::tick, 1, "respawn_index_check");
+        } else {
+            this.schedulePoll();
         }
 
     }
 
+    /**
+     * Returns the {@link ChunkRespawnIndex}.
+     * @return respawn index or null
+     */
+    public final @Nullable ChunkRespawnIndex getRespawnIndex() {
+        return this.respawnIndex;
+    }
+
+    /**
+     * Returns true if the entity is waiting for its chunk to be loaded in the {@link ChunkRespawnIndex}.
+     * @return respawn pending
+     */
+    public final boolean isRespawnPending() {
+        return this.respawnPending;
+    }
+
+    /**
+     * Returns the spawn location.
+     * @return location
+     */
+    @NotNull
+    public final Location getLocation() {
+        return this.location.clone();
+    }
+
     /**
      * Returns the enabled status.
      * @return enabled status
@@ -87,6 +197,15 @@ public class RespawningManagedEntity<ENTITY_TYPE extends Entity> extends Managed
      */
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
+
+        // Entities with a respawn index are not polled, so the change is applied directly
+        if (this.respawnIndex != null) this.tick();
+    }
+
+    @Override
+    protected void onRemove() {
+        if (this.respawnIndex != null) this.respawnIndex.forget(this, this.getEntity());
+        this.respawnPending = false;
     }
 
     /**
@@ -30,4 +30,22 @@ public class SingleUseManagedEntity<ENTITY_TYPE extends Entity> extends ManagedE
         super.setRemovable(() -> this.getEntity() == null || this.getEntity().isDead());
     }
 
+    /**
+     * Creates a new SingleUseManagedEntity which is managed by a {@link ManagedEntityRegistry}.
+     * @param registry managed entity registry
+     * @param creator creator
+     */
+    public SingleUseManagedEntity(@NotNull ManagedEntityRegistry registry, @NotNull EntityCreator<ENTITY_TYPE, SingleUseManagedEntity<ENTITY_TYPE>> creator) {
+        super(registry);
+
+        try {
+            this.setEntity(creator.create(this));
+        } catch (Exception e) {
+            e.printStackTrace();
+            this.remove();
+        }
+
+        super.setRemovable(() -> this.getEntity() == null || this.getEntity().isDead());
+    }
+
 }
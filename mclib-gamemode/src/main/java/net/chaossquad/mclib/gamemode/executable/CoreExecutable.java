@@ -6,6 +6,7 @@ import net.chaossquad.mclib.scheduler.TaskScheduler;
 import org.bukkit.event.Listener;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,13 +15,44 @@ import java.util.logging.Logger;
 
 /**
  * Class which provides a {@link TaskScheduler} and {@link ManagedListener} cleanup system.<br/>
- * Can be a base class for gamemodes.
+ * Can be a base class for gamemodes.<br/>
+ * Executables can be arranged in a tree (for example server, lobby, game) using {@link #addChild(CoreExecutable)}.
+ * Children are ticked by their parent, and the tick cost of every node includes the cost of its children.
+ * A node with a tick budget ({@link #setTickBudget(long)}) is throttled automatically when its average tick cost exceeds the budget,
+ * so a single runaway game does not degrade its siblings.
+ * Throttling defers work instead of slowing down game time: the task schedulers of the node and its children keep counting every tick,
+ * and tasks which became due in skipped ticks run once in the next executed tick.
  */
 public abstract class CoreExecutable implements ListenerOwner, ListenerRegistrar {
+
+    /**
+     * The maximum throttle: a throttled executable is ticked at least every this many ticks.
+     */
+    public static final int MAX_THROTTLE = 20;
+
+    /**
+     * The weight of the latest tick in the average tick duration.
+     */
+    private static final double AVERAGE_WEIGHT = 0.1;
+
+    /**
+     * The throttle is only lowered when the estimated cost fits into the lower throttle with this share of the budget.
+     */
+    private static final double THROTTLE_RELEASE_THRESHOLD = 0.75;
+
     @NotNull private final EventListenerManager eventListenerManager;
     @NotNull private final Logger logger;
     @NotNull private final TaskScheduler taskScheduler;
     @NotNull private final List<ManagedListener> listeners;
+    @NotNull private final List<CoreExecutable> children;
+    @Nullable private CoreExecutable parent;
+    private long tickBudget;
+    private long tickCounter;
+    private int throttle;
+    private long skippedTicks;
+    private long lastTickDuration;
+    private long lastSelfTickDuration;
+    private double averageTickDuration;
 
     /**
      * Creates a new CoreExecutable.
@@ -32,6 +64,15 @@ public abstract class CoreExecutable implements ListenerOwner, ListenerRegistrar
         this.logger = logger;
         this.taskScheduler = new TaskScheduler(this.logger);
         this.listeners = new ArrayList<>();
+        this.children = new ArrayList<>();
+        this.parent = null;
+        this.tickBudget = 0;
+        this.tickCounter = 0;
+        this.throttle = 1;
+        this.skippedTicks = 0;
+        this.lastTickDuration = 0;
+        this.lastSelfTickDuration = 0;
+        this.averageTickDuration = 0;
 
         this.taskScheduler.scheduleRepeatingTask(this::cleanupListeners, 1, 100);
     }
@@ -59,7 +100,10 @@ public abstract class CoreExecutable implements ListenerOwner, ListenerRegistrar
     }
 
     /**
-     * Should be called by a bukkit task to execute the executables tasks.
+     * Should be called by a bukkit task to execute the executables tasks.<br/>
+     * Children are ticked after the executable's own tasks. Children returning false are removed.
+     * If the executable is throttled, only every n-th call executes the tasks.
+     * The other calls only advance the task schedulers of the executable and its children, so delays and intervals are not stretched.
      * @return true if executed successfully. False if it should be stopped by the plugin.
      */
     public final boolean tick() {
@@ -70,7 +114,20 @@ public abstract class CoreExecutable implements ListenerOwner, ListenerRegistrar
                 return false;
             }
 
+            this.tickCounter++;
+            if (this.throttle > 1 && this.tickCounter % this.throttle != 0) {
+                this.skipTick();
+                return true;
+            }
+
+            long startTime = System.nanoTime();
+
             this.taskScheduler.tick();
+            this.lastSelfTickDuration = System.nanoTime() - startTime;
+
+            this.tickChildren();
+
+            this.updateTickCost(System.nanoTime() - startTime);
             return true;
 
         } catch (Exception e) {
@@ -80,6 +137,86 @@ public abstract class CoreExecutable implements ListenerOwner, ListenerRegistrar
         return false;
     }
 
+    /**
+     * Advances the task schedulers of this executable and its children without running any tasks.
+     */
+    private void skipTick() {
+        this.skippedTicks++;
+        this.taskScheduler.skipTick();
+
+        for (CoreExecutable child : this.children) {
+            child.tickCounter++;
+            child.skipTick();
+        }
+
+        this.updateTickCost(0);
+    }
+
+    /**
+     * Advances the task schedulers of this executable and its children for ticks in which the executable could not be ticked.<br/>
+     * Used by the {@link ParallelExecutableTicker} for ticks which have been dropped because the previous tick had not finished yet.
+     * @param ticks amount of dropped ticks
+     */
+    final void skipTicks(int ticks) {
+
+        for (int i = 0; i < ticks; i++) {
+            this.tickCounter++;
+            this.skipTick();
+        }
+
+    }
+
+    /**
+     * Ticks all children and removes the children which should be stopped.
+     */
+    private void tickChildren() {
+
+        for (CoreExecutable child : List.copyOf(this.children)) {
+            if (child.tick()) continue;
+            this.removeChild(child);
+            this.logger.fine("Removed child executable " + child + " of " + this);
+        }
+
+    }
+
+    /**
+     * Updates the tick cost accounting and the throttle.<br/>
+     * The average is amortized over all ticks (skipped ticks cost 0), so it is the actual load of the executable per server tick.
+     * @param duration duration of the tick including children (0 for skipped ticks)
+     */
+    private void updateTickCost(long duration) {
+        if (duration > 0) this.lastTickDuration = duration;
+        this.averageTickDuration = this.averageTickDuration * (1 - AVERAGE_WEIGHT) + duration * AVERAGE_WEIGHT;
+
+        int throttle = this.throttle;
+
+        if (this.tickBudget <= 0) {
+            throttle = 1;
+        } else {
+            // Estimated cost per tick if the executable was not throttled
+            double cost = this.averageTickDuration * this.throttle;
+            int requiredThrottle = (int) Math.min(MAX_THROTTLE, Math.max(1, Math.ceil(cost / this.tickBudget)));
+
+            if (requiredThrottle > this.throttle) {
+                throttle = requiredThrottle;
+            } else if (requiredThrottle < this.throttle && cost <= this.tickBudget * (this.throttle - 1) * THROTTLE_RELEASE_THRESHOLD) {
+                throttle = requiredThrottle;
+            }
+
+            // The average is adjusted to the new throttle, so it does not need to settle before the next decision
+            if (throttle != this.throttle) this.averageTickDuration = cost / throttle;
+
+        }
+
+        if (throttle > 1 && this.throttle <= 1) {
+            this.logger.warning("Executable " + this + " exceeds its tick budget (" + (long) (this.averageTickDuration * throttle) + "ns > " + this.tickBudget + "ns), ticking it every " + throttle + " ticks");
+        } else if (throttle <= 1 && this.throttle > 1) {
+            this.logger.info("Executable " + this + " is back within its tick budget");
+        }
+
+        this.throttle = throttle;
+    }
+
     /**
      * The tasks will be executed as long as this method returns true.<br/>
      * If it returns false, no tasks will be executed and the plugin is told that the executable should be removed.<br/>
@@ -92,15 +229,154 @@ public abstract class CoreExecutable implements ListenerOwner, ListenerRegistrar
         return true;
     }
 
+    // ----- TICK BUDGET -----
+
+    /**
+     * Returns the tick budget.
+     * @return tick budget in nanoseconds (0 = unlimited)
+     */
+    public final long getTickBudget() {
+        return this.tickBudget;
+    }
+
+    /**
+     * Sets the tick budget.<br/>
+     * When the average cost of a tick (including children) exceeds the budget, the executable is only ticked every n-th tick,
+     * where n is the ratio of the average cost and the budget (at most {@link #MAX_THROTTLE}).
+     * The throttle is lowered again when the cost fits into the lower throttle with some headroom.<br/>
+     * Timers are not slowed down by throttling: tasks which become due in skipped ticks run in the next executed tick,
+     * and repeating tasks with an interval shorter than the throttle run once per executed tick instead of once per interval.
+     * @param tickBudget tick budget in nanoseconds (0 = unlimited)
+     */
+    public final void setTickBudget(long tickBudget) {
+        this.tickBudget = Math.max(tickBudget, 0);
+        if (this.tickBudget == 0) this.throttle = 1;
+    }
+
+    /**
+     * Returns the current throttle.
+     * @return the executable is ticked every n ticks (1 = not throttled)
+     */
+    public final int getThrottle() {
+        return this.throttle;
+    }
+
+    /**
+     * Returns true if the executable is currently throttled.
+     * @return throttled
+     */
+    public final boolean isThrottled() {
+        return this.throttle > 1;
+    }
+
+    /**
+     * Returns the amount of ticks which have been skipped because of throttling.
+     * @return skipped ticks
+     */
+    public final long getSkippedTicks() {
+        return this.skippedTicks;
+    }
+
+    /**
+     * Returns the duration of the last executed tick including children.
+     * @return duration in nanoseconds
+     */
+    public final long getLastTickDuration() {
+        return this.lastTickDuration;
+    }
+
+    /**
+     * Returns the duration of the executable's own tasks in the last executed tick, excluding children.
+     * @return duration in nanoseconds
+     */
+    public final long getLastSelfTickDuration() {
+        return this.lastSelfTickDuration;
+    }
+
+    /**
+     * Returns the average cost per tick including children, amortized over skipped ticks.
+     * @return duration in nanoseconds
+     */
+    public final double getAverageTickDuration() {
+        return this.averageTickDuration;
+    }
+
+    // ----- CHILDREN -----
+
+    /**
+     * Adds a child executable which will be ticked by this executable.
+     * @param child child
+     * @throws IllegalArgumentException if the child already has a parent or is this executable or one of its parents
+     */
+    public final void addChild(@NotNull CoreExecutable child) {
+        if (child.parent != null) throw new IllegalArgumentException("Executable " + child + " already has a parent");
+        for (CoreExecutable e = this; e != null; e = e.parent) if (e == child) throw new IllegalArgumentException("Executable " + child + " cannot be a child of itself");
+
+        child.parent = this;
+        this.children.add(child);
+
+        // The listeners of the child are now provided by the root of this executable
+        CoreExecutable root = this.getRoot();
+        for (Listener listener : child.getListeners()) this.eventListenerManager.queueListenerAdded(root, listener);
+    }
+
+    /**
+     * Removes a child executable.
+     * @param child child
+     */
+    public final void removeChild(@NotNull CoreExecutable child) {
+        if (child.parent != this) return;
+        this.children.remove(child);
+        child.parent = null;
+
+        this.eventListenerManager.queueListenersRemoved(child.getListeners());
+    }
+
+    /**
+     * Returns the children of this executable.
+     * @return list of children
+     */
+    @NotNull
+    public final List<CoreExecutable> getChildren() {
+        return List.copyOf(this.children);
+    }
+
+    /**
+     * Returns the parent of this executable.
+     * @return parent or null
+     */
+    @Nullable
+    public final CoreExecutable getParent() {
+        return this.parent;
+    }
+
+    /**
+     * Returns the root of the executable tree this executable belongs to.
+     * @return root executable (this if the executable has no parent)
+     */
+    @NotNull
+    public final CoreExecutable getRoot() {
+        CoreExecutable root = this;
+        while (root.parent != null) root = root.parent;
+        return root;
+    }
+
     // ----- LISTENERS -----
 
     /**
-     * Returns a list containing all listeners of this executable.
+     * Returns a list containing all listeners of this executable and its children.
      * @return list of listeners
      */
     @NotNull
     public final List<Listener> getListeners() {
-        return List.copyOf(this.listeners);
+        if (this.children.isEmpty()) return List.copyOf(this.listeners);
+
+        List<Listener> listeners = new ArrayList<>(this.listeners);
+        for (CoreExecutable child : List.copyOf(this.children)) {
+            listeners.addAll(child.getListeners());
+        }
+
+        return listeners;
     }
 
     /**
@@ -113,14 +389,20 @@ public abstract class CoreExecutable implements ListenerOwner, ListenerRegistrar
     }
 
     /**
-     * Registers the specified listener.
+     * Registers the specified listener.<br/>
+     * If instant is true, the {@link EventListenerManager} is notified and registers only this listener.
+     * Otherwise, the listener is queued and registered by the next {@link EventListenerManager#manageListeners()} call.
      * @param listener listener
      * @param instant register the listener instantly
      */
     public final void registerListener(@NotNull ManagedListener listener, boolean instant) {
         for (ManagedListener l : this.listeners) if (l == listener) return;
         this.listeners.add(listener);
-        if (instant) this.eventListenerManager.manageListeners();
+        if (instant) {
+            this.eventListenerManager.notifyListenerAdded(this.getRoot(), listener);
+        } else {
+            this.eventListenerManager.queueListenerAdded(this.getRoot(), listener);
+        }
     }
 
     /**
@@ -132,13 +414,19 @@ public abstract class CoreExecutable implements ListenerOwner, ListenerRegistrar
     }
 
     /**
-     * Unregisters the specified listener.
+     * Unregisters the specified listener.<br/>
+     * If instant is true, the {@link EventListenerManager} is notified and unregisters only this listener.
+     * Otherwise, the listener is queued and unregistered by the next {@link EventListenerManager#manageListeners()} call.
      * @param listener listener
      * @param instant unregister the listener instantly
      */
     public final void unregisterListener(@NotNull ManagedListener listener, boolean instant) {
-        this.listeners.remove(listener);
-        if (instant) this.eventListenerManager.manageListeners();
+        if (!this.listeners.remove(listener)) return;
+        if (instant) {
+            this.eventListenerManager.notifyListenerRemoved(listener);
+        } else {
+            this.eventListenerManager.queueListenersRemoved(List.of(listener));
+        }
     }
 
     /**
@@ -160,12 +448,20 @@ public abstract class CoreExecutable implements ListenerOwner, ListenerRegistrar
     }
 
     /**
-     * Removes all listeners marked as to be removed.
+     * Removes all listeners marked as to be removed.<br/>
+     * The {@link EventListenerManager} is notified about the removed listeners, so they are unregistered directly in a single pass.
      */
     public final void cleanupListeners() {
+        List<ManagedListener> removedListeners = new ArrayList<>();
+
         for (ManagedListener listener : List.copyOf(this.listeners)) {
-            if (listener.toBeRemoved()) this.listeners.remove(listener);
+            if (!listener.toBeRemoved()) continue;
+            this.listeners.remove(listener);
+            removedListeners.add(listener);
         }
+
+        if (removedListeners.isEmpty()) return;
+        this.eventListenerManager.notifyListenersRemoved(removedListeners);
     }
 
 }
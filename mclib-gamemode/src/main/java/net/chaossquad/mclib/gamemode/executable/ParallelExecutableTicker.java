@@ -0,0 +1,216 @@
+package net.chaossquad.mclib.gamemode.executable;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+/**
+ * Ticks {@link CoreExecutable}s every tick.<br/>
+ * <b>Ticks only run in parallel on region-threaded servers (Folia).</b>
+ * There, executables implementing {@link WorldConfinedExecutable} are ticked by the region scheduler of their confined location,
+ * so executables in different regions are ticked in parallel.
+ * All other executables are ticked sequentially by the task of the {@link org.bukkit.Bukkit#getGlobalRegionScheduler() global region scheduler},
+ * which runs on the global region thread on Folia and on the main thread on all other servers.
+ * On servers which are not region-threaded, this class therefore is a sequential ticker,
+ * since the Bukkit API (spawning entities, registering listeners, calling events) must not be used from other threads there.<br/>
+ * If the region tick of an executable has not finished when the next tick starts, the tick is dropped,
+ * and the task schedulers of the executable are advanced for the dropped ticks afterward, so it does not lose game time.<br/>
+ * Executables whose tick returns false are removed from the ticker.
+ * You need to call {@link #remove()} inside your plugin's onDisable method.
+ */
+public final class ParallelExecutableTicker {
+    @NotNull private final Plugin plugin;
+    @NotNull private final List<CoreExecutable> executables;
+    @NotNull private final Map<CoreExecutable, Integer> runningRegionTicks; // Executables with a running region tick and their dropped ticks
+    private final boolean regionized;
+    @NotNull private final ScheduledTask task;
+
+    /**
+     * Creates a new ParallelExecutableTicker and starts ticking.
+     * @param plugin plugin
+     */
+    public ParallelExecutableTicker(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+        this.executables = new CopyOnWriteArrayList<>();
+        this.runningRegionTicks = new ConcurrentHashMap<>();
+        this.regionized = isRegionizedServer();
+
+        this.task = this.plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(this.plugin, scheduledTask -> this.tick(), 1, 1);
+    }
+
+    // ----- TICK -----
+
+    /**
+     * Ticks all executables.
+     */
+    private void tick() {
+
+        for (CoreExecutable executable : this.executables) {
+
+            try {
+
+                if (this.regionized && executable instanceof WorldConfinedExecutable) {
+                    this.tickInRegion(executable);
+                } else {
+                    this.tickExecutable(executable);
+                }
+
+            } catch (Exception e) {
+                this.plugin.getLogger().log(Level.WARNING, "Exception while ticking executable " + executable, e);
+            }
+
+        }
+
+    }
+
+    /**
+     * Schedules the tick of a world-confined executable on the region owning its confined location.<br/>
+     * If the previous tick has not finished yet, the tick is dropped and counted.
+     * @param executable executable (has to implement {@link WorldConfinedExecutable})
+     */
+    private void tickInRegion(@NotNull CoreExecutable executable) {
+        boolean[] scheduled = {false};
+
+        this.runningRegionTicks.compute(executable, (e, droppedTicks) -> {
+            if (droppedTicks != null) return droppedTicks + 1;
+            scheduled[0] = true;
+            return 0;
+        });
+
+        if (!scheduled[0]) return;
+
+        try {
+            Location location = ((WorldConfinedExecutable) executable).getConfinedLocation();
+            World world = location.getWorld();
+            if (world == null) throw new IllegalStateException("Confined location of executable " + executable + " has no world");
+
+            this.plugin.getServer().getRegionScheduler().execute(this.plugin, world, location.getBlockX() >> 4, location.getBlockZ() >> 4, () -> {
+
+                try {
+                    this.tickExecutable(executable);
+                } catch (Exception e) {
+                    this.plugin.getLogger().log(Level.WARNING, "Exception while ticking executable " + executable, e);
+                } finally {
+                    this.finishRegionTick(executable);
+                }
+
+            });
+
+        } catch (Exception e) {
+            this.runningRegionTicks.remove(executable);
+            throw e;
+        }
+
+    }
+
+    /**
+     * Advances the executable for the ticks which have been dropped while its region tick was running and marks the region tick as finished.
+     * @param executable executable
+     */
+    private void finishRegionTick(@NotNull CoreExecutable executable) {
+
+        while (true) {
+            int droppedTicks = this.runningRegionTicks.getOrDefault(executable, 0);
+
+            if (droppedTicks == 0) {
+                if (this.runningRegionTicks.remove(executable, 0) || !this.runningRegionTicks.containsKey(executable)) return;
+                continue;
+            }
+
+            try {
+                executable.skipTicks(droppedTicks);
+            } catch (Exception e) {
+                this.plugin.getLogger().log(Level.WARNING, "Exception while skipping ticks of executable " + executable, e);
+            }
+
+            this.runningRegionTicks.computeIfPresent(executable, (e, ticks) -> ticks - droppedTicks);
+        }
+
+    }
+
+    /**
+     * Ticks the executable and removes it if it should be stopped.
+     * @param executable executable
+     */
+    private void tickExecutable(@NotNull CoreExecutable executable) {
+        if (executable.tick()) return;
+        this.executables.remove(executable);
+        this.plugin.getLogger().fine("Removed executable " + executable + " from parallel ticker");
+    }
+
+    // ----- EXECUTABLES -----
+
+    /**
+     * Adds an executable.
+     * @param executable executable
+     */
+    public void addExecutable(@NotNull CoreExecutable executable) {
+        if (this.executables.contains(executable)) return;
+        this.executables.add(executable);
+    }
+
+    /**
+     * Removes an executable.
+     * @param executable executable
+     */
+    public void removeExecutable(@NotNull CoreExecutable executable) {
+        this.executables.remove(executable);
+    }
+
+    /**
+     * Returns all executables.
+     * @return list of executables
+     */
+    public @NotNull List<CoreExecutable> getExecutables() {
+        return List.copyOf(this.executables);
+    }
+
+    // ----- OTHER -----
+
+    /**
+     * Returns true if the server is region-threaded and world-confined executables are ticked by the region scheduler.
+     * @return region-threaded
+     */
+    public boolean isRegionized() {
+        return this.regionized;
+    }
+
+    /**
+     * Stops ticking.
+     */
+    public void remove() {
+        this.task.cancel();
+    }
+
+    /**
+     * Returns true if the ticker has been removed.
+     * @return removed
+     */
+    public boolean isRemoved() {
+        return this.task.isCancelled();
+    }
+
+    /**
+     * Returns true if the server is region-threaded (Folia).
+     * @return region-threaded
+     */
+    private static boolean isRegionizedServer() {
+
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+
+    }
+
+}
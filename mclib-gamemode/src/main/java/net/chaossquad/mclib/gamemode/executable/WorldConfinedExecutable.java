@@ -0,0 +1,19 @@
+package net.chaossquad.mclib.gamemode.executable;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Implemented by a {@link CoreExecutable} which only accesses its own world (for example a game running in a dynamic world).<br/>
+ * On region-threaded servers, such executables are ticked in parallel to other executables by a {@link ParallelExecutableTicker}.
+ */
+public interface WorldConfinedExecutable {
+
+    /**
+     * Returns a location inside the world the executable is confined to.<br/>
+     * On region-threaded servers, the executable is ticked by the region owning this location.
+     * @return location
+     */
+    @NotNull Location getConfinedLocation();
+
+}